@@ -0,0 +1,47 @@
+package com.st.application.benchmark;
+
+import com.st.application.Parser;
+import com.st.application.infrastructure.LogUtil;
+import com.st.application.parsers.FastLogParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of aggregations over parsed records by count of records and count of distinct resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int records;
+
+    @Param({"10", "10000"})
+    public int resources;
+
+    private List<Parser.Data> logs;
+
+    @Setup
+    public void setup() {
+        List<String> lines = new LogGenerator(1, resources).lines(records, LogGenerator.LineType.URI);
+        logs = new FastLogParser().parse(lines);
+    }
+
+    @Benchmark
+    public Map<String, Double> avgDurationByResource() {
+        return LogUtil.buildAvgDurationByResource(logs, 10);
+    }
+
+    @Benchmark
+    public Map<LocalDateTime, Long> durationSumByHour() {
+        return LogUtil.buildDurationSumByHour(logs);
+    }
+}
@@ -0,0 +1,56 @@
+package com.st.application.benchmark;
+
+import com.st.application.parsers.TimestampDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of request date-time decoding alone: formatter against TimestampDecoder on the same date-time strings.
+ * Generated lines go in time order, so decoder mostly reuses cached date-hour prefix, like on real log.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateTimeBenchmark {
+    private static final int LINES = 1024;
+
+    private final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+    private final TimestampDecoder decoder = new TimestampDecoder();
+    private String[] dateTimes;
+    private int index;
+
+    @Setup
+    public void setup() {
+        String[] lines = new LogGenerator(1, 100).lines(LINES, LogGenerator.LineType.RESOURCE).toArray(new String[0]);
+        dateTimes = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            dateTimes[i] = lines[i].substring(0, TimestampDecoder.LENGTH);
+        }
+    }
+
+    @Benchmark
+    public LocalDateTime formatterParse() {
+        index = (index + 1) & (LINES - 1);
+        return LocalDateTime.parse(dateTimes[index], dateTimeFormat);
+    }
+
+    @Benchmark
+    public LocalDateTime decoderDateTime() {
+        index = (index + 1) & (LINES - 1);
+        String dateTime = dateTimes[index];
+        return decoder.decode(dateTime) ? decoder.getDateTime(dateTime) : null;
+    }
+
+    @Benchmark
+    public long decoderMillis() {
+        index = (index + 1) & (LINES - 1);
+        String dateTime = dateTimes[index];
+        return decoder.decode(dateTime) ? decoder.getMillis(dateTime) : 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.st.application.benchmark;
+
+import com.st.application.Parser;
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.LogProcessor;
+import com.st.application.parsers.FastLogParser;
+import com.st.application.parsers.LogParser;
+import com.st.application.parsers.MappedLogParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Whole file processing without JVM start and console output: reading, parsing and aggregation of synthetic log.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileBenchmark {
+
+    @Param({"regex", "fast", "mapped"})
+    public String parserName;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"1000000"})
+    public int lines;
+
+    private Path file;
+    private Supplier<Parser> parserFactory;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("benchmark", ".log");
+        LogGenerator.main(new String[]{file.toString(), String.valueOf(lines)});
+        parserFactory = "regex".equals(parserName) ? LogParser::new : "fast".equals(parserName) ? FastLogParser::new : MappedLogParser::new;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public LogAggregator process() throws IOException {
+        return LogProcessor.process(file, parserFactory, threads);
+    }
+}
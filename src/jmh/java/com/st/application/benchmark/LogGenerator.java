@@ -0,0 +1,90 @@
+package com.st.application.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic log lines, so benchmarks are reproducible without production logs.
+ * Lines have the same shape as real ones: resource lines, URI lines with 'action' parameter and not matched lines.
+ * The same seed gives the same lines.
+ */
+public class LogGenerator {
+    public enum LineType {RESOURCE, URI, REJECTED}
+
+    private final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+    private final Random random;
+    private final int resourceCount;
+    private LocalDateTime time = LocalDateTime.of(2015, 8, 19, 0, 0);
+
+    /**
+     * @param seed          - random seed
+     * @param resourceCount - count of distinct resource names and actions
+     */
+    public LogGenerator(long seed, int resourceCount) {
+        this.random = new Random(seed);
+        this.resourceCount = resourceCount;
+    }
+
+    /**
+     * @param type - shape of line
+     * @return next line, time of lines grows by up to 2 seconds
+     */
+    public String nextLine(LineType type) {
+        time = time.plusNanos(random.nextInt(2000) * 1_000_000L);
+        String dateTime = time.format(dateTimeFormat);
+        String thread = "http--0.0.0.0-28080-" + random.nextInt(500);
+        int resource = random.nextInt(resourceCount);
+        int duration = random.nextInt(3000);
+        switch (type) {
+            case RESOURCE:
+                return String.format("%s (%s) [] getResource%d 3001%08d true 1.0 in %d", dateTime, thread, resource, random.nextInt(100_000_000), duration);
+            case URI:
+                return String.format("%s (%s) [USER:300406591035] /mobilityServices.do?msisdn=300406591035&action=ACTION_%d&contentId=main in %d", dateTime, thread, resource, duration);
+            default:
+                return String.format("%s (%s) [CUST:CUS5T27233] Session is not valid for user %d", dateTime, thread, resource);
+        }
+    }
+
+    /**
+     * @return next line of random type: 40% resource lines, 40% URI lines, 20% not matched lines
+     */
+    public String nextLine() {
+        int type = random.nextInt(10);
+        return nextLine(type < 4 ? LineType.RESOURCE : type < 8 ? LineType.URI : LineType.REJECTED);
+    }
+
+    public List<String> lines(int count, LineType type) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(type != null ? nextLine(type) : nextLine());
+        }
+        return lines;
+    }
+
+    /**
+     * Write synthetic log file.
+     * Arguments: [fileName] [lines count] [resources count] [seed]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Arguments: [fileName] [lines count] [resources count (default 100)] [seed (default 1)]");
+            return;
+        }
+        long lineCount = Long.parseLong(args[1]);
+        LogGenerator generator = new LogGenerator(args.length > 3 ? Long.parseLong(args[3]) : 1, args.length > 2 ? Integer.parseInt(args[2]) : 100);
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            for (long i = 0; i < lineCount; i++) {
+                writer.write(generator.nextLine());
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.st.application.benchmark;
+
+import com.st.application.Parser;
+import com.st.application.parsers.FastLogParser;
+import com.st.application.parsers.LogParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of single line parsing by line shape: resource line, URI line with 'action' parameter, not matched line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    private static final int LINES = 1024;
+
+    @Param({"regex", "fast"})
+    public String parserName;
+
+    @Param({"RESOURCE", "URI", "REJECTED"})
+    public LogGenerator.LineType lineType;
+
+    private Parser parser;
+    private String[] lines;
+    private int index;
+
+    @Setup
+    public void setup() {
+        parser = "regex".equals(parserName) ? new LogParser() : new FastLogParser();
+        List<String> generated = new LogGenerator(1, 100).lines(LINES, lineType);
+        lines = generated.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public Parser.Data parseLine() {
+        index = (index + 1) & (LINES - 1);
+        return parser.parseLine(lines[index]);
+    }
+}
@@ -0,0 +1,55 @@
+package com.st.application;
+
+import java.util.*;
+
+/**
+ * Command line arguments: positional values and named options like "--parser fast".
+ */
+class Arguments {
+    private final List<String> positional = new ArrayList<>();
+    private final Map<String, String> options = new HashMap<>();
+
+    /**
+     * @param args         - raw program arguments
+     * @param valueOptions - names of options followed by value
+     * @param flagOptions  - names of options without value
+     * @throws IllegalArgumentException on unknown option or option without value
+     */
+    Arguments(String[] args, Set<String> valueOptions, Set<String> flagOptions) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+            } else if (flagOptions.contains(arg)) {
+                options.put(arg, "");
+            } else if (valueOptions.contains(arg)) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Option " + arg + " requires value");
+                }
+                options.put(arg, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+    }
+
+    List<String> getPositional() {
+        return positional;
+    }
+
+    boolean has(String option) {
+        return options.containsKey(option);
+    }
+
+    String get(String option, String defaultValue) {
+        return options.getOrDefault(option, defaultValue);
+    }
+
+    /**
+     * @throws NumberFormatException if value is not integer
+     */
+    int getInt(String option, int defaultValue) {
+        String value = options.get(option);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+}
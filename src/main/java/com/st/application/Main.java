@@ -1,28 +1,50 @@
 package com.st.application;
 
 
-import com.st.application.infrastructure.LogUtil;
+import com.st.application.infrastructure.HourlyDurations;
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.LogFiles;
+import com.st.application.infrastructure.LogFilter;
+import com.st.application.infrastructure.LogFollower;
+import com.st.application.infrastructure.LogIndex;
+import com.st.application.infrastructure.LogProcessor;
+import com.st.application.infrastructure.ResourceDictionary;
+import com.st.application.infrastructure.ResourceRanking;
+import com.st.application.infrastructure.RunStatistics;
+import com.st.application.parsers.FastLogParser;
 import com.st.application.parsers.LogParser;
+import com.st.application.parsers.MappedLogParser;
+import com.st.application.reports.CsvReportSink;
+import com.st.application.reports.JsonReportSink;
+import com.st.application.reports.TextReportSink;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Main {
     private final static Logger log = Logger.getLogger(Main.class.getName());
+    private final static int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private final static int DEFAULT_MAX_RESOURCES = 100_000;
 
-    public static void main(String[] args) {
-        final DateTimeFormatter printTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd: HH");
-        final Parser parser = new LogParser();
+    private final static Set<String> valueOptions = new HashSet<>(Arrays.asList("--parser", "--threads", "--interval", "--rank-by", "--format",
+            "--from", "--to", "--include", "--exclude", "--max-resources"));
+    private final static Set<String> flagOptions = new HashSet<>(Arrays.asList("--follow", "--snapshot", "--stats", "--sorted", "--index"));
 
+    public static void main(String[] args) {
         Instant startTime = Instant.now();
 
         if (args.length == 0) {
@@ -30,86 +52,349 @@ public class Main {
             return;
         }
 
-        final int maxArgumentSize = 2;
-        if (args.length > maxArgumentSize) {
-            log.log(Level.INFO, "Too many arguments. For help run with argument -h");
+        if (Arrays.asList(args).contains("-h")) {
+            printHelp();
             return;
         }
 
-        List<String> inputArgumentList = Arrays.asList(args);
-        if (inputArgumentList.contains("-h")) {
-            printHelp();
+        Arguments arguments;
+        try {
+            arguments = new Arguments(args, valueOptions, flagOptions);
+        } catch (IllegalArgumentException e) {
+            log.log(Level.INFO, e.getMessage() + ". For help run with argument -h");
+            return;
+        }
+
+        List<String> inputArgumentList = arguments.getPositional();
+        if (inputArgumentList.isEmpty()) {
+            log.log(Level.INFO, "Please, parse with required arguments. For help run with argument -h");
+            return;
+        }
+
+        LogFilter filter;
+        try {
+            filter = new LogFilter(arguments.get("--from", null), arguments.get("--to", null),
+                    getNames(arguments.get("--include", null)), getNames(arguments.get("--exclude", null)));
+        } catch (IllegalArgumentException e) {
+            log.log(Level.WARNING, e.getMessage() + ". For help run with argument -h");
+            return;
+        }
+        if (!filter.isEmpty() && arguments.has("--snapshot")) {
+            log.log(Level.WARNING, "Snapshot keeps aggregate of whole log and can not be used with filters. For help run with argument -h");
+            return;
+        }
+        if (arguments.has("--snapshot") && arguments.has("--index")) {
+            log.log(Level.WARNING, "Snapshot and index can not be used together. For help run with argument -h");
+            return;
+        }
+
+        int maxResources;
+        try {
+            maxResources = arguments.getInt("--max-resources", DEFAULT_MAX_RESOURCES);
+        } catch (NumberFormatException e) {
+            maxResources = 0;
+        }
+        if (maxResources < 1) {
+            log.log(Level.WARNING, "Max count of resources is not positive integer value. For help run with argument -h");
             return;
         }
 
+        String parserName = arguments.get("--parser", "fast");
+        Supplier<Parser> parserFactory = getParserFactory(parserName, filter, maxResources);
+        if (parserFactory == null) {
+            log.log(Level.WARNING, "Unknown parser. For help run with argument -h");
+            return;
+        }
+
+        String rankBy = arguments.get("--rank-by", "avg");
+        Double rankPercentile = getRankPercentile(rankBy);
+        if (!rankBy.equals("avg") && rankPercentile == null) {
+            log.log(Level.WARNING, "Unknown rank statistic. For help run with argument -h");
+            return;
+        }
+
+        String format = arguments.get("--format", "text");
+        Function<Writer, ReportSink> reportSinkFactory = getReportSinkFactory(format);
+        if (reportSinkFactory == null) {
+            log.log(Level.WARNING, "Unknown report format. For help run with argument -h");
+            return;
+        }
+        boolean textReport = format.equals("text");
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE);
+        ReportSink reportSink = reportSinkFactory.apply(out);
+
+        //Trailing integer is top n, the rest are log files, directories and glob patterns
         Integer maxAvgLinesCount = null;
-        if (inputArgumentList.size() > 1) {
+        List<String> logNames = inputArgumentList;
+        String lastArgument = inputArgumentList.get(inputArgumentList.size() - 1);
+        if (inputArgumentList.size() > 1 && lastArgument.matches("-?\\d+")) {
             try {
-                maxAvgLinesCount = Integer.valueOf(inputArgumentList.get(1));
+                maxAvgLinesCount = Integer.valueOf(lastArgument);
             } catch (NumberFormatException e) {
                 log.log(Level.WARNING, "Max count for highest average requests is not integer value. For help run with argument -h");
                 return;
             }
+            logNames = inputArgumentList.subList(0, inputArgumentList.size() - 1);
         }
 
-        String logName = inputArgumentList.get(0);
+        //Statistics are collected by counters anyway, flag only prints them
+        RunStatistics statistics = arguments.has("--stats") ? new RunStatistics() : null;
+        if (statistics != null) statistics.startPhase("resolve");
+        List<Path> logFiles;
         try {
-            List<String> lineList = Files.readAllLines(Paths.get(logName));
-            List<Parser.Data> logs = parser.parse(lineList);
-            if (logs.size() > 0) {
-
-                //Print out top n (exact value of n is passed as program argument) resources with highest average request duration.
-                maxAvgLinesCount = maxAvgLinesCount != null ? maxAvgLinesCount : Integer.MAX_VALUE;
-                Map<String, Double> resourceAvgDuration = LogUtil.buildAvgDurationByResource(logs, maxAvgLinesCount);
-                if (!resourceAvgDuration.isEmpty()) {
-                    printAvgDuration(resourceAvgDuration);
-                } else {
-                    log.log(Level.WARNING, "Not have data to print resources with highest average request duration");
+            logFiles = LogFiles.resolve(logNames);
+        } catch (NoSuchFileException e) {
+            if (maxAvgLinesCount == null && logNames.size() > 1 && lastArgument.equals(e.getFile())) {
+                //Trailing argument is neither file nor integer, most likely it is mistyped top n
+                log.log(Level.WARNING, "Max count for highest average requests is not integer value and not log file: " + lastArgument
+                        + ". For help run with argument -h");
+            } else {
+                log.log(Level.WARNING, "Please, run application with argument, contain log file name or path. For help run with argument -h");
+            }
+            return;
+        } catch (IOException | UncheckedIOException e) {
+            log.log(Level.WARNING, "Please, run application with argument, contain log file name or path. For help run with argument -h");
+            return;
+        }
+
+        int threads;
+        try {
+            threads = arguments.getInt("--threads", logFiles.size() > 1 ? Runtime.getRuntime().availableProcessors() : 1);
+        } catch (NumberFormatException e) {
+            threads = 0;
+        }
+        if (threads < 1) {
+            log.log(Level.WARNING, "Threads count is not positive integer value. For help run with argument -h");
+            return;
+        }
+
+        if (arguments.has("--follow")) {
+            if (logFiles.size() != 1 || LogFiles.isCompressed(logFiles.get(0))) {
+                log.log(Level.WARNING, "Only single not compressed log file can be followed. For help run with argument -h");
+                return;
+            }
+            follow(arguments, logFiles.get(0), parserFactory.get(), maxAvgLinesCount, rankPercentile, reportSink, textReport ? out : null);
+            return;
+        }
+
+        LogProcessor.FileMode fileMode = LogProcessor.FileMode.WHOLE;
+        if (arguments.has("--snapshot")) {
+            fileMode = LogProcessor.FileMode.SNAPSHOT;
+        } else if (arguments.has("--index")) {
+            fileMode = LogProcessor.FileMode.INDEX;
+        } else if (arguments.has("--sorted")) {
+            fileMode = LogProcessor.FileMode.SEEK;
+        }
+
+        LogAggregator aggregator;
+        try {
+            if (fileMode == LogProcessor.FileMode.INDEX) {
+                //Index keeps aggregates of all requests, so it is built by parsers without filter
+                if (statistics != null) statistics.startPhase("index");
+                for (Path logFile : logFiles) {
+                    if (!LogFiles.isCompressed(logFile)) {
+                        LogIndex.update(logFile, getParserFactory(parserName, LogFilter.ALL, maxResources), threads);
+                    }
                 }
+            }
+            if (statistics != null) statistics.startPhase(RunStatistics.PARSE_PHASE);
+            aggregator = LogProcessor.process(logFiles, parserFactory, threads, fileMode, filter);
+        } catch (IOException | UncheckedIOException e) {
+            log.log(Level.WARNING, "Please, run application with argument, contain log file name or path. For help run with argument -h");
+            return;
+        }
 
-                //Draw histogram of hourly number of requests
-                Map<LocalDateTime, Long> resultSumDuration = LogUtil.buildDurationSumByHour(logs);
-                Long maxDuration = resultSumDuration.values().stream()
-                        .max(Long::compare)
-                        .orElse(null);
+        log.log(Level.FINE, "Parsed " + aggregator.getLineCounters());
+        if (aggregator.hasOtherResources()) {
+            log.log(Level.WARNING, "Log has more than " + maxResources + " distinct resources, resources beyond them are counted as " + ResourceDictionary.OTHER);
+        }
+        if (aggregator.getRecordCount() > 0) {
+            try {
+                if (statistics != null) {
+                    statistics.startPhase("report");
+                    statistics.setLineCounters(aggregator.getLineCounters());
+                }
+                printReport(aggregator, maxAvgLinesCount, rankPercentile, reportSink, statistics);
 
-                if (!resultSumDuration.isEmpty() && maxDuration != null) {
-                    printHistogram(printTimeFormat, resultSumDuration, maxDuration);
+                //Print out number of (milli)seconds your program run, machine-readable report is left without it
+                String workTime = "Program work time = " + ChronoUnit.MILLIS.between(startTime, Instant.now()) + " millis";
+                if (textReport) {
+                    out.write("\n" + workTime + "\n");
+                    out.flush();
                 } else {
-                    log.log(Level.WARNING, "Not have data to draw histogram of hourly number of requests");
+                    log.log(Level.FINE, workTime);
                 }
-
-                //Print out number of (milli)seconds your program run
-                System.out.println("\nProgram work time = " + ChronoUnit.MILLIS.between(startTime, Instant.now()) + " millis");
-            } else {
-                log.log(Level.WARNING, "Empty log file");
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Can not write report: " + e.getMessage());
             }
-        } catch (IOException e) {
-            log.log(Level.WARNING, "Please, run application with argument, contain log file name or path. For help run with argument -h");
+        } else {
+            log.log(Level.WARNING, "Empty log file");
         }
     }
 
-    private static void printHistogram(DateTimeFormatter printTimeFormat, Map<LocalDateTime, Long> resultSumDurationByHour, Long maxDuration) {
-        System.out.println("\nDraw histogram of hourly number of requests:");
-        System.out.println("    0-100(step 1%) => ****************************************************************************************************");
-        Map<LocalDateTime, Long> sortedDuration = new TreeMap<>(resultSumDurationByHour);
-        for (Map.Entry<LocalDateTime, Long> entry : sortedDuration.entrySet()) {
-            Long durationPercents = entry.getValue() * 100 / maxDuration;
-            System.out.println("    " + entry.getKey().format(printTimeFormat) + " => " + String.join("", Collections.nCopies(durationPercents.intValue(), "*")));
+    /**
+     * @param textOut - writer of text report for headers of refreshes, null for machine-readable report
+     */
+    private static void follow(Arguments arguments, Path logPath, Parser parser, Integer maxAvgLinesCount,
+                               Double rankPercentile, ReportSink reportSink, Writer textOut) {
+        int intervalSeconds;
+        try {
+            intervalSeconds = arguments.getInt("--interval", 5);
+        } catch (NumberFormatException e) {
+            intervalSeconds = 0;
+        }
+        if (intervalSeconds < 1) {
+            log.log(Level.WARNING, "Refresh interval is not positive integer value. For help run with argument -h");
+            return;
+        }
+
+        LogFollower follower = new LogFollower(logPath, parser, new LogAggregator(parser.getMaxResources()));
+        try {
+            follower.follow(TimeUnit.SECONDS.toMillis(intervalSeconds), aggregator -> {
+                try {
+                    if (textOut != null) {
+                        textOut.write("\n===== " + LocalDateTime.now().withNano(0) + ", requests: " + aggregator.getRecordCount() + " =====\n");
+                    }
+                    printReport(aggregator, maxAvgLinesCount, rankPercentile, reportSink, null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            log.log(Level.WARNING, "Can not read followed log file or write report: " + e.getMessage());
         }
     }
 
-    private static void printAvgDuration(Map<String, Double> resourceAvgDuration) {
-        System.out.println("Resources with highest average request duration: ");
-        AtomicInteger lineNumber = new AtomicInteger();
-        resourceAvgDuration.forEach((resource, avgDuration) -> System.out.println("    " + lineNumber.incrementAndGet() + ") " + resource + " = " + avgDuration));
+    /**
+     * @param statistics - statistics of run with started report phase, written after report sections. Null to write only report
+     */
+    private static void printReport(LogAggregator aggregator, Integer maxAvgLinesCount, Double rankPercentile,
+                                    ReportSink reportSink, RunStatistics statistics) throws IOException {
+        reportSink.begin(aggregator.getRecordCount());
+
+        //Print out top n (exact value of n is passed as program argument) resources with highest average (or chosen percentile) request duration.
+        ResourceRanking ranking = aggregator.rankResources(rankPercentile, maxAvgLinesCount);
+        if (ranking.size() > 0) {
+            reportSink.writeResources(ranking);
+        } else {
+            log.log(Level.WARNING, "Not have data to print resources with highest average request duration");
+        }
+
+        //Draw histogram of hourly number of requests
+        HourlyDurations hours = aggregator.getHourlyDurations();
+        if (hours.size() > 0) {
+            reportSink.writeHours(hours);
+        } else {
+            log.log(Level.WARNING, "Not have data to draw histogram of hourly number of requests");
+        }
+
+        if (statistics != null) {
+            statistics.endPhase();
+            reportSink.writeStatistics(statistics);
+        }
+        reportSink.end();
+    }
+
+    /**
+     * @param rankBy - 'max' or percentile like 'p99', 'p99.9'
+     * @return percentile from 0 to 100 or null, if statistic is not percentile
+     */
+    private static Double getRankPercentile(String rankBy) {
+        if (rankBy.equals("max")) return 100d;
+        if (!rankBy.matches("p\\d+(\\.\\d+)?")) return null;
+        double percentile = Double.parseDouble(rankBy.substring(1));
+        return percentile <= 100 ? percentile : null;
+    }
+
+    private static Function<Writer, ReportSink> getReportSinkFactory(String format) {
+        switch (format) {
+            case "text":
+                return TextReportSink::new;
+            case "json":
+                return JsonReportSink::new;
+            case "csv":
+                return CsvReportSink::new;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param names - comma separated names or null
+     * @return list of not empty names, null for null
+     */
+    private static List<String> getNames(String names) {
+        if (names == null) return null;
+        List<String> result = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) result.add(name.trim());
+        }
+        return result;
+    }
+
+    private static Supplier<Parser> getParserFactory(String parserName, LogFilter filter, int maxResources) {
+        switch (parserName) {
+            case "fast":
+                return () -> new FastLogParser(filter, maxResources);
+            case "regex":
+                return () -> new LogParser(filter, maxResources);
+            case "mapped":
+                return () -> new MappedLogParser(filter, maxResources);
+            default:
+                return null;
+        }
     }
 
     private static void printHelp() {
         System.out.println("Input arguments:");
-        System.out.println("   [fileName]   Log file name (required)");
-        System.out.println("   [n]          Integer argument (optional). Print out top n (exact value of n is passed as program argument) resources with highest average request duration. Optional\n");
+        System.out.println("   [fileName]   Log file name (required). Several names, directories and glob patterns like \"logs/*.log\" are accepted,");
+        System.out.println("                files ending with .gz are decompressed on the fly");
+        System.out.println("   [n]          Integer argument (optional). Print out top n (exact value of n is passed as program argument) resources with highest average request duration. Optional");
+        System.out.println("   --parser     Parser implementation (optional): 'fast' (default) - regex-free tokenizer, 'regex' - regular expressions,");
+        System.out.println("                'mapped' - regex-free tokenizer over memory-mapped file bytes without charset decoding");
+        System.out.println("   --rank-by    Statistic to choose top n resources (optional): 'avg' (default) - average duration,");
+        System.out.println("                'p50', 'p90', 'p99' or other percentile - duration at percentile, 'max' - maximum duration.");
+        System.out.println("                Percentiles are estimated by histogram with relative error below 3%");
+        System.out.println("   --format     Report format (optional): 'text' (default), 'json' - one JSON object per report line, 'csv' - table");
+        System.out.println("                of resources and hours with header");
+        System.out.println("   --threads    Count of threads parsing parts of log file or several files in parallel (optional).");
+        System.out.println("                Default: 1 for single file, count of processors for several files");
+        System.out.println("   --from       First date-time of requests to report (optional), inclusive prefix of 'yyyy-MM-dd HH:mm:ss,SSS',");
+        System.out.println("                like \"2015-08-19\" or \"2015-08-19 01:30\"");
+        System.out.println("   --to         Last date-time of requests to report (optional), inclusive prefix: \"2015-08-19 01\" ends with 01:59:59,999");
+        System.out.println("   --include    Comma separated names of resources to report (optional). Default: all resources");
+        System.out.println("   --exclude    Comma separated names of resources to skip (optional)");
+        System.out.println("   --max-resources");
+        System.out.println("                Count of reported resources (optional). The rest are counted together as '(other)', so memory is");
+        System.out.println("                bounded for log with unlimited names. Kept resources are chosen by hash of name, so report does not");
+        System.out.println("                depend on --threads and order of lines. Default: " + DEFAULT_MAX_RESOURCES);
+        System.out.println("   --sorted     Log files are ordered by time (optional): --from and --to are found by binary search in plain files,");
+        System.out.println("                so only lines of time window are read");
+        System.out.println("   --index      Log files are ordered by time (optional): keep index next to plain log file ([fileName].index)");
+        System.out.println("                with hour buckets of byte offsets and requests aggregate, update it with appended lines and");
+        System.out.println("                answer report from it. Only hours at the edges of --from and --to window are parsed");
+        System.out.println("   --snapshot   Keep aggregate snapshot next to log file ([fileName].snapshot) and parse only bytes appended after previous run (optional)");
+        System.out.println("   --stats      Print run statistics after report (optional): wall time, CPU time, allocated memory and garbage");
+        System.out.println("                collections by phases, input bytes and lines per second, counts of matched and rejected lines,");
+        System.out.println("                throughput, busy and waiting time and queue depth of stages of compressed file pipeline.");
+        System.out.println("                With --index hours answered from index are not parsed: their requests are reported apart,");
+        System.out.println("                their lines are not counted. Ignored in --follow mode");
+        System.out.println("   --follow     Keep single log file open, parse appended lines and reprint report until stopped (optional)");
+        System.out.println("   --interval   Seconds between report refreshes in --follow mode (optional). Default: 5\n");
         System.out.println("Example parse:    java -jar log-parser-20190302.jar log.log 10");
         System.out.println("                java -jar log-parser-20190302.jar log.log");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --parser regex");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --threads 4");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --rank-by p99");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --format json > report.json");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --follow --interval 10");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --snapshot");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --from \"2015-08-19 01\" --to \"2015-08-19 01\" --sorted");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --from \"2015-08-19 01:30\" --to \"2015-08-19 05\" --index");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --include getSubscriptionLogs,getSubscriptionHistory");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --max-resources 1000");
+        System.out.println("                java -jar log-parser-20190302.jar log.log 10 --stats");
+        System.out.println("                java -jar log-parser-20190302.jar logs/ 10");
+        System.out.println("                java -jar log-parser-20190302.jar \"logs/*.gz\" old.log 10 --threads 4");
     }
 }
@@ -1,11 +1,201 @@
 package com.st.application;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface Parser {
 
-    List<Data> parse(List<String> logLineList);
+    /**
+     * Take dirty strings and collect valid to Data.
+     *
+     * @param logLineList - incoming dirty string list
+     * @return result list with filled Data
+     */
+    default List<Data> parse(List<String> logLineList) {
+        if (logLineList == null || logLineList.size() == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Data> logs = new ArrayList<>();
+        for (String line : logLineList) {
+            Data data = parseLine(line);
+            if (data != null) {
+                logs.add(data);
+            }
+        }
+
+        return logs;
+    }
+
+    /**
+     * Parse single log line.
+     *
+     * @param line - incoming dirty string
+     * @return filled Data or null, if line is not valid
+     */
+    Data parseLine(String line);
+
+    /**
+     * Streaming parse. Lines are taken one by one and every valid line is pushed to consumer,
+     * so whole log is never held in memory.
+     *
+     * @param lines    - incoming dirty strings
+     * @param consumer - receiver of filled Data
+     */
+    default void parse(Stream<String> lines, Consumer<Data> consumer) {
+        lines.forEach(line -> {
+            Data data = parseLine(line);
+            if (data != null) {
+                consumer.accept(data);
+            }
+        });
+    }
+
+    /**
+     * Streaming parse of lines from reader, for example of decompressed file.
+     *
+     * @param reader - source of lines, not closed by this method
+     * @param sink   - receiver of parsed values
+     * @throws IOException on read error. Decoding errors may be thrown as UncheckedIOException
+     */
+    default void parse(BufferedReader reader, RecordSink sink) throws IOException {
+        parse(reader.lines(), data -> sink.accept(data.getRequestTimeMillis(), data.getResourceName(), data.getRequestDuration()));
+    }
+
+    /**
+     * @return counters of lines seen by this parser, or null if parser does not count lines
+     */
+    default LineCounters getLineCounters() {
+        return null;
+    }
+
+    /**
+     * @return count of resources reported from records of this parser, the rest are counted together as '(other)'
+     */
+    default int getMaxResources() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Parser, which reads byte range of file itself, without decoding of lines to strings.
+     * Ranges for other parsers are decoded to lines by caller.
+     */
+    interface RangeParser extends Parser {
+
+        /**
+         * Streaming parse of byte range of file. Range should be aligned to line boundaries.
+         *
+         * @param channel - opened log file channel, not closed by this method
+         * @param start   - first byte of range, inclusive
+         * @param end     - last byte of range, exclusive
+         * @param sink    - receiver of parsed values
+         * @throws IOException on read error
+         */
+        void parse(FileChannel channel, long start, long end, RecordSink sink) throws IOException;
+    }
+
+    /**
+     * Receiver of parsed values without intermediate Data object.
+     */
+    @FunctionalInterface
+    interface RecordSink {
+
+        /**
+         * @param requestTime     - request local date-time as milliseconds from 1970-01-01T00:00 (see Data.getRequestTimeMillis)
+         * @param resourceName    - request-resource name
+         * @param requestDuration - request duration
+         */
+        void accept(long requestTime, String resourceName, long requestDuration);
+    }
+
+    /**
+     * Counters of parsed lines: matched by resource form, matched by URI form with 'action' parameter, rejected,
+     * and skipped by filter of time window or resources (see LogFilter).
+     * Requests answered from aggregates of index hours are counted apart: lines of such hours are not parsed,
+     * so they are not in line counters.
+     * Not thread-safe: every parser has own counters, add them together.
+     */
+    class LineCounters {
+        private long resourceLines;
+        private long uriLines;
+        private long rejectedLines;
+        private long filteredLines;
+        private long indexedRecords;
+
+        public void countResourceLine() {
+            resourceLines++;
+        }
+
+        public void countUriLine() {
+            uriLines++;
+        }
+
+        public void countRejectedLine() {
+            rejectedLines++;
+        }
+
+        public void countFilteredLine() {
+            filteredLines++;
+        }
+
+        /**
+         * @param count - count of requests answered from index without parsing of their lines
+         */
+        public void countIndexedRecords(long count) {
+            indexedRecords += count;
+        }
+
+        public void add(LineCounters other) {
+            resourceLines += other.resourceLines;
+            uriLines += other.uriLines;
+            rejectedLines += other.rejectedLines;
+            filteredLines += other.filteredLines;
+            indexedRecords += other.indexedRecords;
+        }
+
+        public long getResourceLines() {
+            return resourceLines;
+        }
+
+        public long getUriLines() {
+            return uriLines;
+        }
+
+        public long getRejectedLines() {
+            return rejectedLines;
+        }
+
+        public long getFilteredLines() {
+            return filteredLines;
+        }
+
+        public long getIndexedRecords() {
+            return indexedRecords;
+        }
+
+        /**
+         * @return count of parsed lines. Lines of hours answered from index are not included
+         */
+        public long getTotalLines() {
+            return resourceLines + uriLines + rejectedLines + filteredLines;
+        }
+
+        @Override
+        public String toString() {
+            long total = getTotalLines();
+            return String.format("%d lines: %d resource form, %d URI form, %d rejected, %d filtered (%.1f%% matched)",
+                    total, resourceLines, uriLines, rejectedLines, filteredLines, total == 0 ? 0 : (resourceLines + uriLines) * 100.0 / total)
+                    + (indexedRecords > 0 ? ", " + indexedRecords + " requests from index, their lines not counted" : "");
+        }
+    }
 
     class Data {
         private LocalDateTime requestTime;
@@ -22,6 +212,13 @@ public interface Parser {
             return requestTime;
         }
 
+        /**
+         * @return request local date-time as milliseconds from 1970-01-01T00:00, without time zone shift
+         */
+        public long getRequestTimeMillis() {
+            return requestTime.toEpochSecond(ZoneOffset.UTC) * 1000 + requestTime.getNano() / 1_000_000;
+        }
+
         public long getRequestDuration() {
             return requestDuration;
         }
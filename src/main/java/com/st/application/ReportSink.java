@@ -0,0 +1,47 @@
+package com.st.application;
+
+import com.st.application.infrastructure.HourlyDurations;
+import com.st.application.infrastructure.ResourceRanking;
+import com.st.application.infrastructure.RunStatistics;
+
+import java.io.IOException;
+
+/**
+ * Writer of report in some format. Report is written section by section between begin and end,
+ * rows are streamed to buffered writer one by one.
+ */
+public interface ReportSink {
+
+    /**
+     * Start report.
+     *
+     * @param recordCount - count of parsed requests
+     */
+    void begin(long recordCount) throws IOException;
+
+    /**
+     * Write top resources with duration statistics.
+     *
+     * @param resources - not empty ranking of resources
+     */
+    void writeResources(ResourceRanking resources) throws IOException;
+
+    /**
+     * Write sums of requests duration by hour.
+     *
+     * @param hours - not empty sums by hour, from oldest hour to freshest
+     */
+    void writeHours(HourlyDurations hours) throws IOException;
+
+    /**
+     * Write statistics of run: time, CPU and memory by phases, pipeline stages, input rates and line counters.
+     *
+     * @param statistics - statistics with finished phases
+     */
+    void writeStatistics(RunStatistics statistics) throws IOException;
+
+    /**
+     * Finish report and flush writer, so report is visible before the next one.
+     */
+    void end() throws IOException;
+}
@@ -0,0 +1,150 @@
+package com.st.application.infrastructure;
+
+import com.st.application.Parser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of log aggregate, kept next to log file, so re-run parses only bytes appended after previous run.
+ * Snapshot keeps file identity (file key and checksum of first bytes), byte offset reached and aggregate.
+ * Format: magic, version, file key, checksum length, checksum, offset, aggregate (see LogAggregator.writeTo).
+ */
+public class AggregateSnapshot {
+    private final static Logger log = Logger.getLogger(AggregateSnapshot.class.getName());
+    private static final int MAGIC = 0x4C50534E;
+    private static final int VERSION = 2;
+    private static final int CHECKSUM_BYTES = 64 * 1024;
+    public static final String FILE_SUFFIX = ".snapshot";
+
+    private final String fileKey;
+    private final int checksumLength;
+    private final long checksum;
+    private final long offset;
+    private final LogAggregator aggregator;
+
+    private AggregateSnapshot(String fileKey, int checksumLength, long checksum, long offset, LogAggregator aggregator) {
+        this.fileKey = fileKey;
+        this.checksumLength = checksumLength;
+        this.checksum = checksum;
+        this.offset = offset;
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Load valid snapshot of log, parse appended complete lines, save new snapshot, then parse not finished last line.
+     * Invalid or missing snapshot is ignored and log is parsed from the beginning.
+     *
+     * @param file          - log file
+     * @param parserFactory - creates parser for every worker
+     * @param threads       - count of parsing workers
+     * @return aggregate of whole file
+     * @throws IOException on read error of log file
+     */
+    public static LogAggregator process(Path file, Supplier<Parser> parserFactory, int threads) throws IOException {
+        Path snapshotFile = snapshotPath(file);
+        String fileKey = readFileKey(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            AggregateSnapshot snapshot = load(snapshotFile);
+            if (snapshot != null && !snapshot.matches(channel, fileKey, size)) {
+                log.log(Level.INFO, "Snapshot does not match log file, parse log from the beginning");
+                snapshot = null;
+            }
+
+            long start = snapshot != null ? snapshot.offset : 0;
+            long lineEnd = LogProcessor.lastLineEnd(channel, start, size);
+            LogAggregator aggregator = LogProcessor.process(channel, start, lineEnd, parserFactory, threads);
+            if (snapshot != null) {
+                aggregator.merge(snapshot.aggregator);
+            }
+
+            if (snapshot == null || lineEnd > start) {
+                int checksumLength = (int) Math.min(CHECKSUM_BYTES, lineEnd);
+                try {
+                    new AggregateSnapshot(fileKey, checksumLength, checksum(channel, checksumLength), lineEnd, aggregator).save(snapshotFile);
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Can not save snapshot " + snapshotFile + ": " + e.getMessage());
+                }
+            }
+
+            if (lineEnd < size) {
+                aggregator.merge(LogProcessor.process(channel, lineEnd, size, parserFactory, 1));
+            }
+            return aggregator;
+        }
+    }
+
+    /**
+     * @return snapshot file next to log file
+     */
+    public static Path snapshotPath(Path file) {
+        return file.resolveSibling(file.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * @return snapshot or null, if file is missing, broken or has other version
+     */
+    static AggregateSnapshot load(Path snapshotFile) {
+        if (!Files.exists(snapshotFile)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.log(Level.INFO, "Snapshot " + snapshotFile + " has unknown format, it is ignored");
+                return null;
+            }
+            String fileKey = in.readUTF();
+            int checksumLength = in.readInt();
+            long checksum = in.readLong();
+            long offset = in.readLong();
+            return new AggregateSnapshot(fileKey, checksumLength, checksum, offset, LogAggregator.readFrom(in));
+        } catch (IOException e) {
+            log.log(Level.INFO, "Snapshot " + snapshotFile + " can not be read, it is ignored: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write snapshot to temporary file and move it to snapshot file, so broken snapshot is never left.
+     */
+    void save(Path snapshotFile) throws IOException {
+        Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fileKey);
+            out.writeInt(checksumLength);
+            out.writeLong(checksum);
+            out.writeLong(offset);
+            aggregator.writeTo(out);
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private boolean matches(FileChannel channel, String currentFileKey, long size) throws IOException {
+        return fileKey.equals(currentFileKey) && offset <= size && checksumLength <= size
+                && checksum == checksum(channel, checksumLength);
+    }
+
+    static long checksum(FileChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) break;
+        }
+        buffer.flip();
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    static String readFileKey(Path file) throws IOException {
+        Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        return fileKey != null ? fileKey.toString() : "";
+    }
+}
@@ -0,0 +1,157 @@
+package com.st.application.infrastructure;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Mergeable histogram of durations with log-linear buckets, like HDR histogram.
+ * Values below 32 have own buckets, bigger values are split to 32 buckets in every power of two,
+ * so value at percentile is reported with relative error below 1/32 (about 3%), and maximum is exact.
+ * Memory does not depend on count of values: buckets array covers only buckets from minimum to maximum, in steps of 8 counters,
+ * so histogram of resource with a few similar durations keeps 8 or 16 counters, and at most 1888 counters are kept.
+ * Not thread-safe: build histograms in every thread and merge them.
+ */
+public class DurationHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1;
+    private static final int GROW_STEP = 8;
+
+    private long[] buckets = new long[0];
+    // bucket of buckets[0]
+    private int offset;
+    private long count;
+    private long max;
+
+    /**
+     * @param duration - not negative duration
+     * @throws IllegalArgumentException on negative duration
+     */
+    public void add(long duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Negative duration " + duration);
+        }
+        int bucket = bucketOf(duration);
+        if (bucket < offset || bucket >= offset + buckets.length) {
+            grow(bucket, bucket);
+        }
+        buckets[bucket - offset]++;
+        count++;
+        if (duration > max) max = duration;
+    }
+
+    /**
+     * Add counts of other histogram, built for other part of log, into this one.
+     */
+    public void merge(DurationHistogram other) {
+        if (other.buckets.length > 0) {
+            grow(other.offset, other.offset + other.buckets.length - 1);
+        }
+        for (int i = 0; i < other.buckets.length; i++) {
+            buckets[other.offset - offset + i] += other.buckets[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile - percent of values, from 0 to 100
+     * @return the highest value of bucket, where percentile falls, but not above maximum. 0 for empty histogram
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(offset + i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Write histogram in binary form: maximum, count of used buckets and not empty buckets as index and counter.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (long bucket : buckets) {
+            if (bucket != 0) used++;
+        }
+        out.writeLong(max);
+        out.writeInt(used);
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != 0) {
+                out.writeShort(offset + i);
+                out.writeLong(buckets[i]);
+            }
+        }
+    }
+
+    /**
+     * Read histogram written by writeTo.
+     *
+     * @throws IOException on read error or broken data
+     */
+    public static DurationHistogram readFrom(DataInput in) throws IOException {
+        DurationHistogram histogram = new DurationHistogram();
+        histogram.max = in.readLong();
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int bucket = in.readUnsignedShort();
+            long bucketCount = in.readLong();
+            if (bucket >= BUCKET_COUNT || bucketCount < 0) {
+                throw new IOException("Broken histogram bucket " + bucket);
+            }
+            if (bucket < histogram.offset || bucket >= histogram.offset + histogram.buckets.length) {
+                histogram.grow(bucket, bucket);
+            }
+            histogram.buckets[bucket - histogram.offset] += bucketCount;
+            histogram.count += bucketCount;
+        }
+        return histogram;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) return bucket;
+        int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKET_COUNT;
+        long lowest = (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Extend buckets array to cover buckets from low to high, inclusive. Bounds are aligned to GROW_STEP.
+     */
+    private void grow(int low, int high) {
+        int start = buckets.length == 0 ? low : Math.min(offset, low);
+        int end = buckets.length == 0 ? high + 1 : Math.max(offset + buckets.length, high + 1);
+        start = start / GROW_STEP * GROW_STEP;
+        end = Math.min((end + GROW_STEP - 1) / GROW_STEP * GROW_STEP, BUCKET_COUNT);
+        if (start == offset && end - start == buckets.length) return;
+
+        long[] grown = new long[end - start];
+        if (buckets.length > 0) {
+            System.arraycopy(buckets, 0, grown, offset - start, buckets.length);
+        }
+        buckets = grown;
+        offset = start;
+    }
+}
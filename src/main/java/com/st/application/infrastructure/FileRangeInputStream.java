@@ -0,0 +1,66 @@
+package com.st.application.infrastructure;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Input stream over byte range of file. Use positional reads, so one channel can be shared by many threads.
+ * Closing of stream does not close channel.
+ */
+public class FileRangeInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    /**
+     * @param channel - opened file channel
+     * @param start   - first byte of range, inclusive
+     * @param end     - last byte of range, exclusive
+     */
+    public FileRangeInputStream(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * Reader of lines from byte range of file. Malformed UTF-8 input is reported as error, like Files.lines does.
+     */
+    public static BufferedReader newReader(FileChannel channel, long start, long end) {
+        return new BufferedReader(new InputStreamReader(new FileRangeInputStream(channel, start, end), StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        if (position >= end) return -1;
+
+        int count = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+        if (count < 0) return -1;
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long count) {
+        long skipped = Math.max(0, Math.min(count, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+    }
+}
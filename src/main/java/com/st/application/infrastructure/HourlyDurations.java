@@ -0,0 +1,58 @@
+package com.st.application.infrastructure;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Sums of request durations by hour, sorted from oldest hour to freshest, in two primitive arrays.
+ * Report iterates it by index, so no map of boxed values is built even for many hours.
+ */
+public class HourlyDurations {
+    private final long[] hours;
+    private final long[] durationSums;
+    private final long maxDurationSum;
+
+    HourlyDurations(LongLongMap durationSumByHour) {
+        hours = new long[durationSumByHour.size()];
+        int[] index = {0};
+        durationSumByHour.forEach((hour, duration) -> hours[index[0]++] = hour);
+        Arrays.sort(hours);
+
+        durationSums = new long[hours.length];
+        long max = 0;
+        for (int i = 0; i < hours.length; i++) {
+            durationSums[i] = durationSumByHour.get(hours[i]);
+            max = Math.max(max, durationSums[i]);
+        }
+        maxDurationSum = max;
+    }
+
+    public int size() {
+        return hours.length;
+    }
+
+    /**
+     * @return hour as count of hours from 1970-01-01T00:00, see LogUtil.toHour
+     */
+    public long getHour(int index) {
+        return hours[index];
+    }
+
+    /**
+     * @return local date-time of hour start
+     */
+    public LocalDateTime getDateTime(int index) {
+        return LogUtil.toDateTime(hours[index]);
+    }
+
+    public long getDurationSum(int index) {
+        return durationSums[index];
+    }
+
+    /**
+     * @return the highest sum of durations in one hour, 0 if there is no hour
+     */
+    public long getMaxDurationSum() {
+        return maxDurationSum;
+    }
+}
@@ -0,0 +1,125 @@
+package com.st.application.infrastructure;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide counters of work: CPU time and allocated bytes of measured threads, bytes of read input
+ * and statistics of finished pipeline stages.
+ * Thread is measured from begin to end of its task with two ThreadMXBean calls, nothing is measured per line,
+ * so counters are always on. Nested measures of one thread are counted once, by the outer one.
+ */
+public class Instrumentation {
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final AtomicLong cpuNanos = new AtomicLong();
+    private static final AtomicLong allocatedBytes = new AtomicLong();
+    private static final AtomicLong inputBytes = new AtomicLong();
+    private static final List<LogPipeline.Stage> pipelineStages = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * Start measure of current thread.
+     *
+     * @return usage of thread at start, or null if thread is already measured
+     */
+    public static long[] begin() {
+        return depth.get()[0]++ == 0 ? threadUsage() : null;
+    }
+
+    /**
+     * Finish measure of current thread and add its usage since begin to counters.
+     *
+     * @param start - result of begin
+     */
+    public static void end(long[] start) {
+        depth.get()[0]--;
+        if (start == null) return;
+        long[] usage = threadUsage();
+        if (start[0] >= 0 && usage[0] >= 0) cpuNanos.addAndGet(usage[0] - start[0]);
+        if (start[1] >= 0 && usage[1] >= 0) allocatedBytes.addAndGet(usage[1] - start[1]);
+    }
+
+    /**
+     * @return task, which measures thread it is run by
+     */
+    public static <T> Callable<T> measured(Callable<T> task) {
+        return () -> {
+            long[] start = begin();
+            try {
+                return task.call();
+            } finally {
+                end(start);
+            }
+        };
+    }
+
+    public static void addInputBytes(long bytes) {
+        inputBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Keep statistics of stages of finished pipeline for report of run.
+     */
+    public static void addPipelineStages(List<LogPipeline.Stage> stages) {
+        pipelineStages.addAll(stages);
+    }
+
+    /**
+     * @return statistics of stages of all finished pipelines, in order of finish
+     */
+    public static List<LogPipeline.Stage> getPipelineStages() {
+        return new ArrayList<>(pipelineStages);
+    }
+
+    /**
+     * @return CPU time of measured threads, -1 if JVM does not support thread CPU time
+     */
+    public static long getCpuNanos() {
+        return threads.isCurrentThreadCpuTimeSupported() ? cpuNanos.get() : -1;
+    }
+
+    /**
+     * @return bytes allocated by measured threads, -1 if JVM does not support thread allocation counter
+     */
+    public static long getAllocatedBytes() {
+        return allocationCounter() != null ? allocatedBytes.get() : -1;
+    }
+
+    public static long getInputBytes() {
+        return inputBytes.get();
+    }
+
+    /**
+     * @return count of collections and their time in milliseconds, summed over all collectors
+     */
+    public static long[] getGcUsage() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    private static long[] threadUsage() {
+        long cpu = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+        com.sun.management.ThreadMXBean counter = allocationCounter();
+        long allocated = counter != null ? counter.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+        return new long[]{cpu, allocated};
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) return counter;
+        }
+        return null;
+    }
+}
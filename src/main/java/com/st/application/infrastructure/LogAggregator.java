@@ -0,0 +1,351 @@
+package com.st.application.infrastructure;
+
+import com.st.application.Parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Incremental aggregator for parsed data.
+ * Records are accumulated one by one, so memory is bounded by count of distinct resources and hours, not by log size.
+ * Count and sum of durations are kept in primitive arrays by resource id, sums by hour in primitive map, without boxing.
+ * Every resource has also fixed-size duration histogram for percentiles.
+ * Count of reported resources may be limited. Kept resources are the ones with the lowest hash of name, the rest are folded
+ * into ResourceDictionary.OTHER. Such choice does not depend on order of records, so aggregate of parts, merged in any order,
+ * is the same as aggregate of whole log. Dictionary holds at most twice the limit of names: it is folded, when it is full.
+ * Not thread-safe: build partial aggregates in every thread and merge them.
+ */
+public class LogAggregator implements Consumer<Parser.Data>, Parser.RecordSink {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int maxResources;
+    private ResourceDictionary resources = new ResourceDictionary();
+    private int otherId = -1;
+    // names with greater fold key are folded without place in dictionary, null until dictionary is folded first time
+    private String foldAbove;
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private long[] sums = new long[INITIAL_CAPACITY];
+    private DurationHistogram[] histograms = new DurationHistogram[INITIAL_CAPACITY];
+    private final LongLongMap durationSumByHour = new LongLongMap();
+    private long recordCount;
+    private final Parser.LineCounters lineCounters = new Parser.LineCounters();
+
+    public LogAggregator() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxResources - count of reported resources, the rest are folded into ResourceDictionary.OTHER
+     * @throws IllegalArgumentException if count is not positive
+     */
+    public LogAggregator(int maxResources) {
+        if (maxResources < 1) {
+            throw new IllegalArgumentException("Not positive count of resources " + maxResources);
+        }
+        this.maxResources = maxResources;
+    }
+
+    @Override
+    public void accept(Parser.Data data) {
+        accept(data.getRequestTimeMillis(), data.getResourceName(), data.getRequestDuration());
+    }
+
+    /**
+     * Accumulate single record. Request is counted in the next hour: 10:15 is in the bucket of 11:00.
+     *
+     * @param requestTime     - request local date-time as milliseconds from 1970-01-01T00:00
+     * @param resourceName    - request-resource name
+     * @param requestDuration - request duration
+     */
+    @Override
+    public void accept(long requestTime, String resourceName, long requestDuration) {
+        int id = idOf(resourceName);
+        addDuration(id, 1, requestDuration);
+        histograms[id].add(requestDuration);
+        durationSumByHour.add(LogUtil.toHour(requestTime), requestDuration);
+        recordCount++;
+    }
+
+    /**
+     * Merge partial aggregate, built for other part of log, into this one.
+     * The lower limit of resources of both aggregates is kept.
+     *
+     * @param other - partial aggregate
+     */
+    public void merge(LogAggregator other) {
+        maxResources = Math.min(maxResources, other.maxResources);
+        // other keeps the limit of names not above its bound, so all names above it are folded anyway
+        if (other.foldAbove != null && (foldAbove == null || compareFoldKeys(other.foldAbove, foldAbove) < 0)) {
+            foldAbove = other.foldAbove;
+        }
+        for (int id = 0; id < other.resources.size(); id++) {
+            int ownId = idOf(other.resources.getName(id));
+            addDuration(ownId, other.counts[id], other.sums[id]);
+            histograms[ownId].merge(other.histograms[id]);
+        }
+        other.durationSumByHour.forEach(durationSumByHour::add);
+        recordCount += other.recordCount;
+        lineCounters.add(other.lineCounters);
+    }
+
+    /**
+     * Merge requests of accepted resources from partial aggregate of one hour, like index bucket.
+     * Sum of the hour is taken as sum of durations of accepted resources. Line counters are not merged.
+     * The lower limit of resources of both aggregates is kept.
+     *
+     * @param other            - partial aggregate with requests of one hour
+     * @param acceptsResource  - resources to merge
+     * @throws IllegalArgumentException if other has requests of several hours
+     */
+    public void mergeHour(LogAggregator other, Predicate<String> acceptsResource) {
+        if (other.durationSumByHour.size() > 1) {
+            throw new IllegalArgumentException("Aggregate has requests of " + other.durationSumByHour.size() + " hours");
+        }
+        maxResources = Math.min(maxResources, other.maxResources);
+        long count = 0;
+        long sum = 0;
+        for (int id = 0; id < other.resources.size(); id++) {
+            if (!acceptsResource.test(other.resources.getName(id))) continue;
+            int ownId = idOf(other.resources.getName(id));
+            addDuration(ownId, other.counts[id], other.sums[id]);
+            histograms[ownId].merge(other.histograms[id]);
+            count += other.counts[id];
+            sum += other.sums[id];
+        }
+        if (count > 0) {
+            long duration = sum;
+            other.durationSumByHour.forEach((hour, hourSum) -> durationSumByHour.add(hour, duration));
+            recordCount += count;
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return true, if some resources are folded into ResourceDictionary.OTHER, because of limit of resources
+     */
+    public boolean hasOtherResources() {
+        fold(maxResources);
+        return otherId >= 0;
+    }
+
+    /**
+     * @return counters of lines parsed into this aggregate by line form. Counters are not kept in snapshot,
+     * so they cover only lines parsed in current run
+     */
+    public Parser.LineCounters getLineCounters() {
+        return lineCounters;
+    }
+
+    /**
+     * Statistics for average duration by request-resource.
+     *
+     * @param maxResultLinesCount - setup limit to result records count. Null value will be as Integer.MAX_VALUE
+     * @return sorted map. Key: resource name. Value: average duration. Sorted from highest average to lowest, equal averages by resource name.
+     * ResourceDictionary.OTHER is not in map
+     */
+    public Map<String, Double> getAvgDurationByResource(Integer maxResultLinesCount) {
+        fold(maxResources);
+        return LogUtil.topByAverage(resources, counts, sums, otherId, maxResultLinesCount);
+    }
+
+    /**
+     * Statistics for duration percentile by request-resource.
+     *
+     * @param percentile          - percent of requests, from 0 to 100. 100 is maximum duration
+     * @param maxResultLinesCount - setup limit to result records count. Null value will be as Integer.MAX_VALUE
+     * @return sorted map. Key: resource name. Value: duration at percentile. Sorted from highest value to lowest, equal values by resource name.
+     * ResourceDictionary.OTHER is not in map
+     */
+    public Map<String, Double> getPercentileDurationByResource(double percentile, Integer maxResultLinesCount) {
+        ResourceRanking ranking = rankResources(percentile, maxResultLinesCount);
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            result.put(ranking.getName(rank), ranking.getValue(rank));
+        }
+        return result;
+    }
+
+    /**
+     * Top resources by average or percentile of duration, with access to count and histogram of every resource.
+     *
+     * @param percentile          - percent of requests, from 0 to 100. Null value ranks by average duration
+     * @param maxResultLinesCount - setup limit to result records count. Null value will be as Integer.MAX_VALUE
+     * @return ranking from highest value to lowest, equal values by resource name. ResourceDictionary.OTHER is not ranked,
+     * it is reported apart by ranking
+     */
+    public ResourceRanking rankResources(Double percentile, Integer maxResultLinesCount) {
+        fold(maxResources);
+        double[] values = new double[resources.size()];
+        for (int id = 0; id < values.length; id++) {
+            values[id] = percentile == null ? (double) sums[id] / counts[id] : histograms[id].getValueAtPercentile(percentile);
+        }
+        return new ResourceRanking(statisticName(percentile), TopN.select(values, resources, otherId, maxResultLinesCount),
+                values, resources, counts, histograms, otherId, maxResources);
+    }
+
+    /**
+     * Sums of requests duration by hour for streaming report, without map of boxed values.
+     */
+    public HourlyDurations getHourlyDurations() {
+        return new HourlyDurations(durationSumByHour);
+    }
+
+    /**
+     * Sum of requests duration for every hour.
+     *
+     * @return sorted map. Key: LocalDateTime grouped by hour. Value: summarized duration in this hour. Sorted from oldest hour to freshest.
+     */
+    public Map<LocalDateTime, Long> getDurationSumByHour() {
+        Map<LocalDateTime, Long> result = new TreeMap<>();
+        durationSumByHour.forEach((hour, duration) -> result.put(LogUtil.toDateTime(hour), duration));
+        return result;
+    }
+
+    /**
+     * Write aggregate in binary form: record count, resources with count, sum and histogram, hours with sum.
+     *
+     * @param out - destination
+     * @throws IOException on write error
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        fold(maxResources);
+        out.writeLong(recordCount);
+        out.writeInt(resources.size());
+        for (int id = 0; id < resources.size(); id++) {
+            out.writeUTF(resources.getName(id));
+            out.writeLong(counts[id]);
+            out.writeLong(sums[id]);
+            histograms[id].writeTo(out);
+        }
+
+        long[] hours = new long[durationSumByHour.size() * 2];
+        int[] index = {0};
+        durationSumByHour.forEach((hour, duration) -> {
+            hours[index[0]++] = hour;
+            hours[index[0]++] = duration;
+        });
+        out.writeInt(durationSumByHour.size());
+        for (long value : hours) {
+            out.writeLong(value);
+        }
+    }
+
+    /**
+     * Read aggregate written by writeTo.
+     *
+     * @param in - source
+     * @return filled aggregate
+     * @throws IOException on read error or broken data
+     */
+    public static LogAggregator readFrom(DataInput in) throws IOException {
+        LogAggregator aggregator = new LogAggregator();
+        aggregator.recordCount = in.readLong();
+        int resourceCount = in.readInt();
+        for (int i = 0; i < resourceCount; i++) {
+            String name = in.readUTF();
+            int id = aggregator.idOf(name);
+            aggregator.addDuration(id, in.readLong(), in.readLong());
+            aggregator.histograms[id].merge(DurationHistogram.readFrom(in));
+        }
+        int hourCount = in.readInt();
+        for (int i = 0; i < hourCount; i++) {
+            aggregator.durationSumByHour.add(in.readLong(), in.readLong());
+        }
+        return aggregator;
+    }
+
+    private static String statisticName(Double percentile) {
+        if (percentile == null) return "average";
+        if (percentile == 100) return "max";
+        return percentile == Math.rint(percentile) ? "p" + percentile.longValue() : "p" + percentile;
+    }
+
+    /**
+     * @return id of resource, new id for unknown resource or id of OTHER for folded resource
+     */
+    private int idOf(String name) {
+        int id = resources.find(name);
+        if (id >= 0) return id;
+        if (name.equals(ResourceDictionary.OTHER)) return getOtherId();
+        if (foldAbove != null && compareFoldKeys(name, foldAbove) > 0) return getOtherId();
+        if (resources.size() - (otherId < 0 ? 0 : 1) >= 2L * maxResources) {
+            fold(maxResources);
+            if (compareFoldKeys(name, foldAbove) > 0) return getOtherId();
+        }
+        return resources.getId(name);
+    }
+
+    private int getOtherId() {
+        if (otherId < 0) {
+            otherId = resources.getId(ResourceDictionary.OTHER);
+        }
+        return otherId;
+    }
+
+    /**
+     * Keep resources with the lowest fold keys and add counters of the rest to OTHER.
+     * Names above the last kept one are folded from now on, because this aggregate already has enough names below it.
+     *
+     * @param keep - count of kept resources
+     */
+    private void fold(int keep) {
+        int named = resources.size() - (otherId < 0 ? 0 : 1);
+        if (named <= keep) return;
+        String[] names = new String[named];
+        for (int id = 0, i = 0; id < resources.size(); id++) {
+            if (id != otherId) names[i++] = resources.getName(id);
+        }
+        Arrays.sort(names, LogAggregator::compareFoldKeys);
+        foldAbove = names[keep - 1];
+
+        ResourceDictionary oldResources = resources;
+        long[] oldCounts = counts;
+        long[] oldSums = sums;
+        DurationHistogram[] oldHistograms = histograms;
+        resources = new ResourceDictionary();
+        counts = new long[INITIAL_CAPACITY];
+        sums = new long[INITIAL_CAPACITY];
+        histograms = new DurationHistogram[INITIAL_CAPACITY];
+        otherId = -1;
+        for (int id = 0; id < oldResources.size(); id++) {
+            String name = oldResources.getName(id);
+            int newId = name.equals(ResourceDictionary.OTHER) || compareFoldKeys(name, foldAbove) > 0 ? getOtherId() : resources.getId(name);
+            addDuration(newId, oldCounts[id], oldSums[id]);
+            histograms[newId].merge(oldHistograms[id]);
+        }
+    }
+
+    /**
+     * Order of names by mixed hash, then by name. Mixed hash spreads similar names, like numbered actions.
+     */
+    private static int compareFoldKeys(String first, String second) {
+        int result = Integer.compare(foldKey(first), foldKey(second));
+        return result != 0 ? result : first.compareTo(second);
+    }
+
+    private static int foldKey(String name) {
+        int hash = name.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void addDuration(int id, long count, long sum) {
+        if (id == counts.length) {
+            counts = Arrays.copyOf(counts, counts.length * 2);
+            sums = Arrays.copyOf(sums, sums.length * 2);
+            histograms = Arrays.copyOf(histograms, histograms.length * 2);
+        }
+        if (histograms[id] == null) {
+            histograms[id] = new DurationHistogram();
+        }
+        counts[id] += count;
+        sums[id] += sum;
+    }
+}
@@ -0,0 +1,94 @@
+package com.st.application.infrastructure;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolving of log file arguments: file paths, directories and glob patterns like "logs/server.log.*.gz".
+ */
+public class LogFiles {
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    private static final String GLOB_CHARS = "*?[{";
+
+    /**
+     * @param names - file names, directories or glob patterns
+     * @return regular files in order of arguments. Files of one directory or pattern are sorted by name.
+     * Service files of this program (snapshots and indexes) in directories and patterns are skipped.
+     * @throws IOException if argument matches no file
+     */
+    public static List<Path> resolve(List<String> names) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String name : names) {
+            List<Path> matched;
+            if (isGlob(name)) {
+                matched = matchGlob(name);
+            } else {
+                Path path = Paths.get(name);
+                matched = Files.isDirectory(path) ? listDirectory(path) : Collections.singletonList(path);
+            }
+            if (matched.isEmpty() || (matched.size() == 1 && !Files.exists(matched.get(0)))) {
+                throw new NoSuchFileException(name);
+            }
+            files.addAll(matched);
+        }
+        return files;
+    }
+
+    public static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    private static boolean isGlob(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (GLOB_CHARS.indexOf(name.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Pattern is matched by files under its longest directory prefix without glob chars.
+     */
+    private static List<Path> matchGlob(String pattern) throws IOException {
+        Path patternPath = Paths.get(pattern);
+        Path base = patternPath.isAbsolute() ? patternPath.getRoot() : Paths.get("");
+        for (Path part : patternPath) {
+            if (isGlob(part.toString()) || base.resolve(part).equals(patternPath)) break;
+            base = base.resolve(part);
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.replace('\\', '/'));
+        Path walkBase = base.toString().isEmpty() ? Paths.get(".") : base;
+        boolean relativeToCurrent = base.toString().isEmpty();
+        int depth = pattern.contains("**") ? Integer.MAX_VALUE
+                : patternPath.getNameCount() - (relativeToCurrent ? 0 : base.getNameCount());
+        try (Stream<Path> paths = Files.walk(walkBase, depth)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(relativeToCurrent ? walkBase.relativize(path) : path))
+                    .filter(path -> !isServiceFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<Path> listDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> !isServiceFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isServiceFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(AggregateSnapshot.FILE_SUFFIX) || name.endsWith(AggregateSnapshot.FILE_SUFFIX + ".tmp")
+                || name.endsWith(LogIndex.FILE_SUFFIX) || name.endsWith(LogIndex.FILE_SUFFIX + ".tmp");
+    }
+}
@@ -0,0 +1,153 @@
+package com.st.application.infrastructure;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Conditions on log lines, checked by parsers at the earliest point: time window before full parsing, resource name before aggregation.
+ * Time bounds are prefixes of log date-time "yyyy-MM-dd HH:mm:ss,SSS", like "2015-08-19" or "2015-08-19 01:30", and both are inclusive:
+ * line passes, if its date-time cut to bound length is not before 'from' and not after 'to'.
+ * Date-time has fixed width, so it is ordered as text, and bounds are compared with raw chars of line without date-time decoding.
+ * Immutable: one filter is shared by parsers of all threads.
+ */
+public class LogFilter {
+    public static final LogFilter ALL = new LogFilter(null, null, null, null);
+    private static final String DATE_TIME_SHAPE = "dddd-dd-dd dd:dd:dd,ddd";
+
+    private final String from;
+    private final String to;
+    private final Set<String> include;
+    private final Set<String> exclude;
+
+    /**
+     * @param from    - first date-time prefix of window, null for no lower bound
+     * @param to      - last date-time prefix of window, null for no upper bound
+     * @param include - names of resources to keep, null or empty for all resources
+     * @param exclude - names of resources to skip, null for none
+     * @throws IllegalArgumentException if bound is not prefix of "yyyy-MM-dd HH:mm:ss,SSS" with year at least
+     */
+    public LogFilter(String from, String to, Collection<String> include, Collection<String> exclude) {
+        this.from = checkBound(from);
+        this.to = checkBound(to);
+        this.include = include == null || include.isEmpty() ? null : new HashSet<>(include);
+        this.exclude = exclude == null ? Collections.emptySet() : new HashSet<>(exclude);
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public boolean hasTimeBounds() {
+        return from != null || to != null;
+    }
+
+    /**
+     * @param line - line starts with date-time, at least as long as bounds
+     * @return true, if date-time of line is inside window
+     */
+    public boolean acceptsTime(CharSequence line) {
+        return !isBefore(line) && !isAfter(line);
+    }
+
+    /**
+     * @param line - line starts with date-time
+     * @return true, if date-time of line is before window
+     */
+    public boolean isBefore(CharSequence line) {
+        return from != null && compare(line, from) < 0;
+    }
+
+    /**
+     * @param line - line starts with date-time
+     * @return true, if date-time of line is after window
+     */
+    public boolean isAfter(CharSequence line) {
+        return to != null && compare(line, to) > 0;
+    }
+
+    public boolean hasResourceConditions() {
+        return include != null || !exclude.isEmpty();
+    }
+
+    /**
+     * @return true, if resource is included and not excluded
+     */
+    public boolean acceptsResource(String resourceName) {
+        return (include == null || include.contains(resourceName)) && !exclude.contains(resourceName);
+    }
+
+    /**
+     * Check resource name by chars range of line without substring, so parser checks name before it is interned.
+     *
+     * @param text  - line contains name
+     * @param start - first char of name, inclusive
+     * @param end   - last char of name, exclusive
+     * @return true, if resource is included and not excluded
+     */
+    public boolean acceptsResource(CharSequence text, int start, int end) {
+        if (!hasResourceConditions()) return true;
+        return (include == null || containsName(include, text, start, end)) && !containsName(exclude, text, start, end);
+    }
+
+    /**
+     * @return true, if filter passes every line
+     */
+    public boolean isEmpty() {
+        return !hasTimeBounds() && !hasResourceConditions();
+    }
+
+    /**
+     * Compare date-time at the start of line, cut to bound length, with bound.
+     */
+    static int compare(CharSequence line, String bound) {
+        for (int i = 0; i < bound.length(); i++) {
+            int difference = line.charAt(i) - bound.charAt(i);
+            if (difference != 0) return difference;
+        }
+        return 0;
+    }
+
+    private static boolean containsName(Set<String> names, CharSequence text, int start, int end) {
+        for (String name : names) {
+            if (name.length() == end - start && regionEquals(name, text, start)) return true;
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(String name, CharSequence text, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true, if text starts with digits and separators of date-time
+     */
+    static boolean isDateTime(CharSequence text) {
+        return text.length() >= DATE_TIME_SHAPE.length() && hasDateTimeShape(text, DATE_TIME_SHAPE.length());
+    }
+
+    private static boolean hasDateTimeShape(CharSequence text, int length) {
+        for (int i = 0; i < length; i++) {
+            char shape = DATE_TIME_SHAPE.charAt(i);
+            char c = text.charAt(i);
+            if (shape == 'd' ? c < '0' || c > '9' : c != shape) return false;
+        }
+        return true;
+    }
+
+    private static String checkBound(String bound) {
+        if (bound == null) return null;
+        if (bound.length() < 4 || bound.length() > DATE_TIME_SHAPE.length() || !hasDateTimeShape(bound, bound.length())) {
+            throw new IllegalArgumentException("Time bound " + bound + " is not prefix of yyyy-MM-dd HH:mm:ss,SSS");
+        }
+        return bound;
+    }
+}
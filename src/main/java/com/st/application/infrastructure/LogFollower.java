@@ -0,0 +1,118 @@
+package com.st.application.infrastructure;
+
+import com.st.application.Parser;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follow log file which is still written: on every refresh only appended complete lines are parsed into aggregate.
+ * Rotation (file is replaced by new one) and truncation are detected, new file is read from beginning.
+ * Aggregate is kept over rotations.
+ */
+public class LogFollower {
+    private final static Logger log = Logger.getLogger(LogFollower.class.getName());
+
+    private final Path file;
+    private final Parser parser;
+    private final LogAggregator aggregator;
+    private FileChannel channel;
+    private Object fileKey;
+    private long position;
+
+    /**
+     * @param file       - followed log file
+     * @param parser     - parser of appended lines
+     * @param aggregator - aggregate to update
+     */
+    public LogFollower(Path file, Parser parser, LogAggregator aggregator) {
+        this.file = file;
+        this.parser = parser;
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Refresh aggregate and pass it to report with interval, until thread is interrupted.
+     *
+     * @param intervalMillis - pause between refreshes
+     * @param report         - called after every refresh with new data
+     * @throws IOException on read error
+     */
+    public void follow(long intervalMillis, Consumer<LogAggregator> report) throws IOException {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (refresh() > 0) {
+                    report.accept(aggregator);
+                }
+                Thread.sleep(intervalMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Parse complete lines appended since previous refresh.
+     *
+     * @return count of parsed bytes
+     * @throws IOException on read error
+     */
+    public long refresh() throws IOException {
+        long parsed = 0;
+        Object currentKey = readFileKey();
+        if (channel != null && currentKey != null && !Objects.equals(currentKey, fileKey)) {
+            log.log(Level.INFO, "Log file is rotated, continue with new file");
+            parsed += readAppended(true);
+            close();
+        }
+        if (channel == null) {
+            if (currentKey == null && !Files.exists(file)) return parsed;
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            fileKey = currentKey;
+            position = 0;
+        }
+        if (channel.size() < position) {
+            log.log(Level.INFO, "Log file is truncated, read it from beginning");
+            position = 0;
+        }
+        return parsed + readAppended(false);
+    }
+
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private long readAppended(boolean toEndOfFile) throws IOException {
+        long size = channel.size();
+        long end = toEndOfFile ? size : LogProcessor.lastLineEnd(channel, position, size);
+        if (end <= position) return 0;
+
+        LogProcessor.parse(parser, channel, position, end, aggregator);
+        long parsed = end - position;
+        position = end;
+        return parsed;
+    }
+
+    private Object readFileKey() throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
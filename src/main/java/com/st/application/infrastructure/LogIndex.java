@@ -0,0 +1,275 @@
+package com.st.application.infrastructure;
+
+import com.st.application.Parser;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sparse side-car index of log file ordered by time, kept next to log file ([fileName].index).
+ * Index splits file into hour buckets: byte range of lines of one hour and aggregate of its requests.
+ * Query merges aggregates of buckets inside time window and parses only buckets partially covered at the edges of window,
+ * so repeated queries read a few hours of log instead of whole file. Bucket bounds are found by LogSeeker.
+ * Buckets are one hour each, so query of some resources takes only their aggregates from bucket, with hour sum of their durations.
+ * Bucket with resources folded into ResourceDictionary.OTHER is parsed for such query.
+ * Index is updated by parsing bytes appended after previous update, starting from the last bucket, which may be not finished.
+ * Log without valid index or lines appended after update are parsed, so query result does not depend on index.
+ * Log, which is not ordered by time, gets index without buckets, so it is parsed whole without repeated attempts to index it.
+ * Format: magic, version, file key, checksum length, checksum, end of indexed lines, ordered by time flag, count of buckets,
+ * buckets: hour prefix "yyyy-MM-dd HH", first byte, last byte exclusive, aggregate (see LogAggregator.writeTo).
+ */
+public class LogIndex {
+    private final static Logger log = Logger.getLogger(LogIndex.class.getName());
+    private static final int MAGIC = 0x4C504958;
+    private static final int VERSION = 2;
+    private static final int CHECKSUM_BYTES = 64 * 1024;
+    private static final int HOUR_PREFIX_LENGTH = 13;
+    public static final String FILE_SUFFIX = ".index";
+
+    private final String fileKey;
+    private final int checksumLength;
+    private final long checksum;
+    private final long end;
+    private final boolean ordered;
+    private final List<Bucket> buckets;
+
+    private LogIndex(String fileKey, int checksumLength, long checksum, long end, boolean ordered, List<Bucket> buckets) {
+        this.fileKey = fileKey;
+        this.checksumLength = checksumLength;
+        this.checksum = checksum;
+        this.end = end;
+        this.ordered = ordered;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Load valid index of log, update it with appended complete lines and save.
+     * Invalid or missing index is built from the beginning. Log, which is not ordered by time, is marked in index and is not read again.
+     *
+     * @param file          - log file ordered by time
+     * @param parserFactory - creates parser for every worker, without filter
+     * @param threads       - count of parsing workers
+     * @throws IOException on read error of log file
+     */
+    public static void update(Path file, Supplier<Parser> parserFactory, int threads) throws IOException {
+        Path indexFile = indexPath(file);
+        String fileKey = AggregateSnapshot.readFileKey(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // header is enough to see, that nothing is appended
+            LogIndex index = load(indexFile, channel, fileKey, size, false);
+            if (index != null && !index.ordered) {
+                log.log(Level.FINE, "Log file " + file + " is not ordered by time, index is not used");
+                return;
+            }
+            long indexEnd = index != null ? index.end : 0;
+            long lineEnd = LogProcessor.lastLineEnd(channel, indexEnd, size);
+            if (index != null && lineEnd == indexEnd) return;
+
+            index = index != null ? load(indexFile, channel, fileKey, size, true) : null;
+            List<Bucket> buckets = index != null ? index.buckets : new ArrayList<>();
+            boolean ordered = update(buckets, channel, lineEnd, parserFactory, threads);
+            int checksumLength = (int) Math.min(CHECKSUM_BYTES, lineEnd);
+            index = new LogIndex(fileKey, checksumLength, AggregateSnapshot.checksum(channel, checksumLength), lineEnd, ordered,
+                    ordered ? buckets : new ArrayList<>());
+            try {
+                index.save(indexFile);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Can not save index " + indexFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answer query by valid index of log. Lines after index are parsed. Log without valid index or not ordered by time is parsed whole.
+     *
+     * @param file          - log file
+     * @param parserFactory - creates parser for every worker. Parsers should apply the same filter
+     * @param threads       - count of parsing workers
+     * @param filter        - time window and resources of query
+     * @return aggregate of requests passed by filter
+     * @throws IOException on read error of log file
+     */
+    public static LogAggregator process(Path file, Supplier<Parser> parserFactory, int threads, LogFilter filter) throws IOException {
+        String fileKey = AggregateSnapshot.readFileKey(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            LogIndex index = load(indexPath(file), channel, fileKey, size, true);
+            if (index == null || !index.ordered) {
+                return LogProcessor.process(channel, 0, size, parserFactory, threads);
+            }
+            return index.query(channel, size, parserFactory, threads, filter);
+        }
+    }
+
+    /**
+     * @return index file next to log file
+     */
+    public static Path indexPath(Path file) {
+        return file.resolveSibling(file.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Merge buckets inside window, parse buckets at the edges of window and not finished last line after index.
+     */
+    LogAggregator query(FileChannel channel, long size, Supplier<Parser> parserFactory, int threads, LogFilter filter) throws IOException {
+        // buckets are read without limit of resources, so it is taken from parser
+        LogAggregator aggregator = new LogAggregator(parserFactory.get().getMaxResources());
+        int merged = 0;
+        long parsedBytes = 0;
+        for (Bucket bucket : buckets) {
+            String first = bucket.hour + ":00:00,000";
+            String last = bucket.hour + ":59:59,999";
+            if (filter.isAfter(first) || filter.isBefore(last)) continue;
+            boolean inside = filter.acceptsTime(first) && filter.acceptsTime(last);
+            long records = aggregator.getRecordCount();
+            if (inside && !filter.hasResourceConditions()) {
+                aggregator.merge(bucket.aggregator);
+                aggregator.getLineCounters().countIndexedRecords(aggregator.getRecordCount() - records);
+                merged++;
+            } else if (inside && !bucket.aggregator.hasOtherResources()) {
+                aggregator.mergeHour(bucket.aggregator, filter::acceptsResource);
+                aggregator.getLineCounters().countIndexedRecords(aggregator.getRecordCount() - records);
+                merged++;
+            } else {
+                aggregator.merge(LogProcessor.process(channel, bucket.start, bucket.end, parserFactory, threads));
+                parsedBytes += bucket.end - bucket.start;
+            }
+        }
+        if (end < size) {
+            aggregator.merge(LogProcessor.process(channel, end, size, parserFactory, threads));
+            parsedBytes += size - end;
+        }
+        log.log(Level.FINE, "Index query: " + merged + " of " + buckets.size() + " buckets merged, " + parsedBytes + " bytes parsed");
+        return aggregator;
+    }
+
+    /**
+     * Replace the last bucket, which may be not finished, and add buckets of lines up to end.
+     *
+     * @return false, if log is not ordered by time
+     */
+    private static boolean update(List<Bucket> buckets, FileChannel channel, long end, Supplier<Parser> parserFactory, int threads) throws IOException {
+        long start = buckets.isEmpty() ? 0 : buckets.remove(buckets.size() - 1).start;
+        while (start < end) {
+            String dateTime = LogSeeker.firstDateTime(channel, start, end);
+            if (dateTime == null) {
+                // no requests are left, lines are added to the last bucket or left for query to parse
+                if (buckets.isEmpty()) return true;
+                Bucket last = buckets.remove(buckets.size() - 1);
+                start = last.start;
+                dateTime = last.hour;
+            }
+            String hour = dateTime.substring(0, HOUR_PREFIX_LENGTH);
+            long bucketEnd = LogSeeker.seekAfter(channel, start, end, hour);
+            LogAggregator aggregator = LogProcessor.process(channel, start, bucketEnd, parserFactory, threads);
+            Bucket previous = buckets.isEmpty() ? null : buckets.get(buckets.size() - 1);
+            if (aggregator.getHourlyDurations().size() > 1 || (previous != null && previous.hour.compareTo(hour) >= 0)) {
+                log.log(Level.WARNING, "Log file is not ordered by time near byte " + start + ", index is not used for it");
+                return false;
+            }
+            buckets.add(new Bucket(hour, start, bucketEnd, aggregator));
+            start = bucketEnd;
+        }
+        return true;
+    }
+
+    /**
+     * @param withBuckets - read buckets or only header
+     * @return index or null, if file is missing, broken, has other version or does not match log file
+     */
+    static LogIndex load(Path indexFile, FileChannel channel, String fileKey, long size, boolean withBuckets) throws IOException {
+        LogIndex index = load(indexFile, withBuckets);
+        if (index != null && !index.matches(channel, fileKey, size)) {
+            log.log(Level.INFO, "Index " + indexFile + " does not match log file, it is ignored");
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * @param withBuckets - read buckets or only header
+     * @return index or null, if file is missing, broken or has other version
+     */
+    static LogIndex load(Path indexFile, boolean withBuckets) {
+        if (!Files.exists(indexFile)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.log(Level.INFO, "Index " + indexFile + " has unknown format, it is ignored");
+                return null;
+            }
+            String fileKey = in.readUTF();
+            int checksumLength = in.readInt();
+            long checksum = in.readLong();
+            long end = in.readLong();
+            boolean ordered = in.readBoolean();
+            if (!withBuckets) {
+                return new LogIndex(fileKey, checksumLength, checksum, end, ordered, null);
+            }
+            int count = in.readInt();
+            List<Bucket> buckets = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                buckets.add(new Bucket(in.readUTF(), in.readLong(), in.readLong(), LogAggregator.readFrom(in)));
+            }
+            return new LogIndex(fileKey, checksumLength, checksum, end, ordered, buckets);
+        } catch (IOException e) {
+            log.log(Level.INFO, "Index " + indexFile + " can not be read, it is ignored: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write index to temporary file and move it to index file, so broken index is never left.
+     */
+    void save(Path indexFile) throws IOException {
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fileKey);
+            out.writeInt(checksumLength);
+            out.writeLong(checksum);
+            out.writeLong(end);
+            out.writeBoolean(ordered);
+            out.writeInt(buckets.size());
+            for (Bucket bucket : buckets) {
+                out.writeUTF(bucket.hour);
+                out.writeLong(bucket.start);
+                out.writeLong(bucket.end);
+                bucket.aggregator.writeTo(out);
+            }
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private boolean matches(FileChannel channel, String currentFileKey, long size) throws IOException {
+        return fileKey.equals(currentFileKey) && end <= size && checksumLength <= size
+                && checksum == AggregateSnapshot.checksum(channel, checksumLength);
+    }
+
+    /**
+     * Lines of one hour: byte range and aggregate.
+     */
+    private static class Bucket {
+        private final String hour;
+        private final long start;
+        private final long end;
+        private final LogAggregator aggregator;
+
+        private Bucket(String hour, long start, long end, LogAggregator aggregator) {
+            this.hour = hour;
+            this.start = start;
+            this.end = end;
+            this.aggregator = aggregator;
+        }
+    }
+}
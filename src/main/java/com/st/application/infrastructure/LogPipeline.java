@@ -0,0 +1,368 @@
+package com.st.application.infrastructure;
+
+import com.st.application.Parser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Staged parsing of sequential stream, which can not be split into ranges, like decompressed file.
+ * Reader thread fills byte blocks of whole lines, parser workers decode and parse blocks into record batches,
+ * aggregator thread accumulates batches. Stages are connected by bounded queues, and blocks and batches are taken from
+ * bounded pools of reusable buffers, so a fast stage waits for a slow one and memory does not depend on stream size.
+ * Statistics of every stage show where time is spent: busy time, time waiting for other stages and depth of output queue.
+ */
+public class LogPipeline {
+    private static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    private static final int BATCH_SIZE = 4096;
+    private static final int BUFFERS_PER_WORKER = 2;
+
+    private static final Block END_OF_BLOCKS = new Block(0);
+    private static final Batch END_OF_BATCHES = new Batch();
+
+    private final Supplier<Parser> parserFactory;
+    private final int parsers;
+    private final int blockSize;
+    private final Stage reading = new Stage("read", "bytes");
+    private final Stage parsing = new Stage("parse", "records");
+    private final Stage aggregation = new Stage("aggregate", "records");
+
+    /**
+     * @param parserFactory - creates parser for every parser worker
+     * @param parsers       - count of parser workers
+     */
+    public LogPipeline(Supplier<Parser> parserFactory, int parsers) {
+        this(parserFactory, parsers, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param parserFactory - creates parser for every parser worker
+     * @param parsers       - count of parser workers
+     * @param blockSize     - size of byte block passed to parser in bytes. Block is grown for lines longer than it
+     */
+    public LogPipeline(Supplier<Parser> parserFactory, int parsers, int blockSize) {
+        this.parserFactory = parserFactory;
+        this.parsers = parsers;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Parse stream in stages. Lines are decoded as UTF-8, malformed input is reported as error.
+     *
+     * @param in - source of log, not closed by this method
+     * @return aggregate of all lines
+     * @throws IOException on read error
+     */
+    public LogAggregator process(InputStream in) throws IOException {
+        int buffers = parsers * BUFFERS_PER_WORKER;
+        BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(buffers);
+        BlockingQueue<Block> blocks = new ArrayBlockingQueue<>(buffers + parsers);
+        BlockingQueue<Batch> freeBatches = new ArrayBlockingQueue<>(buffers);
+        BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(buffers + parsers);
+        for (int i = 0; i < buffers; i++) {
+            freeBlocks.add(new Block(blockSize));
+            freeBatches.add(new Batch());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parsers + 2);
+        CompletionService<Object> stages = new ExecutorCompletionService<>(executor);
+        List<Parser> parserList = new ArrayList<>();
+        try {
+            for (int i = 0; i < parsers; i++) {
+                parserList.add(parserFactory.get());
+            }
+            LogAggregator aggregator = new LogAggregator(parserList.get(0).getMaxResources());
+            Future<Object> result = stages.submit(Instrumentation.measured(() -> aggregate(batches, freeBatches, aggregator)));
+            for (Parser parser : parserList) {
+                stages.submit(Instrumentation.measured(() -> parse(parser, blocks, freeBlocks, batches, freeBatches)));
+            }
+            stages.submit(Instrumentation.measured(() -> read(in, blocks, freeBlocks)));
+
+            // first failed stage stops the others, otherwise they would wait for its buffers forever
+            for (int i = 0; i < parsers + 2; i++) {
+                stages.take().get();
+            }
+            result.get();
+            parserList.forEach(parser -> LogProcessor.countLines(aggregator, parser));
+            return aggregator;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parsing interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return statistics of reader, parser and aggregator stages. Parser statistics are summed over workers
+     */
+    public List<Stage> getStages() {
+        return Arrays.asList(reading, parsing, aggregation);
+    }
+
+    /**
+     * Fill blocks with whole lines. Not finished line at the end of block is moved to the next block.
+     */
+    private Void read(InputStream in, BlockingQueue<Block> blocks, BlockingQueue<Block> freeBlocks) throws IOException, InterruptedException {
+        Block block = reading.take(freeBlocks);
+        while (true) {
+            long started = System.nanoTime();
+            if (block.length == block.data.length) {
+                block.data = Arrays.copyOf(block.data, block.data.length * 2);
+            }
+            int count = in.read(block.data, block.length, block.data.length - block.length);
+            if (count < 0) break;
+            block.length += count;
+            reading.busy(started, count, 0);
+            int lineEnd = block.length == block.data.length ? block.lastLineEnd() : 0;
+            if (lineEnd > 0) {
+                Block next = reading.take(freeBlocks);
+                int rest = block.length - lineEnd;
+                if (next.data.length <= rest) {
+                    next.data = new byte[block.data.length];
+                }
+                System.arraycopy(block.data, lineEnd, next.data, 0, rest);
+                next.length = rest;
+                block.length = lineEnd;
+                reading.put(blocks, block);
+                block = next;
+            }
+        }
+        if (block.length > 0) {
+            reading.put(blocks, block);
+        }
+        for (int i = 0; i < parsers; i++) {
+            reading.put(blocks, END_OF_BLOCKS);
+        }
+        return null;
+    }
+
+    private Void parse(Parser parser, BlockingQueue<Block> blocks, BlockingQueue<Block> freeBlocks,
+                       BlockingQueue<Batch> batches, BlockingQueue<Batch> freeBatches) throws IOException, InterruptedException {
+        Batch[] batch = {parsing.take(freeBatches)};
+        long[] sinkWaitNanos = {0};
+        Parser.RecordSink sink = (requestTime, resourceName, requestDuration) -> {
+            batch[0].accept(requestTime, resourceName, requestDuration);
+            if (batch[0].size == BATCH_SIZE) {
+                long started = System.nanoTime();
+                try {
+                    parsing.put(batches, batch[0]);
+                    batch[0] = parsing.take(freeBatches);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Parsing interrupted"));
+                }
+                sinkWaitNanos[0] += System.nanoTime() - started;
+            }
+        };
+
+        for (Block block = parsing.take(blocks); block != END_OF_BLOCKS; block = parsing.take(blocks)) {
+            long started = System.nanoTime();
+            long waitedBefore = sinkWaitNanos[0];
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new ByteArrayInputStream(block.data, 0, block.length), StandardCharsets.UTF_8.newDecoder()))) {
+                parser.parse(reader, sink);
+            }
+            block.length = 0;
+            freeBlocks.add(block);
+            parsing.busy(started, 0, sinkWaitNanos[0] - waitedBefore);
+        }
+        if (batch[0].size > 0) {
+            parsing.put(batches, batch[0]);
+        }
+        parsing.put(batches, END_OF_BATCHES);
+        return null;
+    }
+
+    private LogAggregator aggregate(BlockingQueue<Batch> batches, BlockingQueue<Batch> freeBatches, LogAggregator aggregator) throws InterruptedException {
+        int finishedParsers = 0;
+        while (finishedParsers < parsers) {
+            Batch batch = aggregation.take(batches);
+            if (batch == END_OF_BATCHES) {
+                finishedParsers++;
+                continue;
+            }
+            long started = System.nanoTime();
+            for (int i = 0; i < batch.size; i++) {
+                aggregator.accept(batch.requestTimes[i], batch.resourceNames[i], batch.requestDurations[i]);
+            }
+            aggregation.busy(started, batch.size, 0);
+            batch.size = 0;
+            freeBatches.add(batch);
+        }
+        return aggregator;
+    }
+
+    /**
+     * Statistics of pipeline stage, updated by stage workers.
+     */
+    public static class Stage {
+        private final String name;
+        private final String unit;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong queueDepthSum = new AtomicLong();
+        private final AtomicLong maxQueueDepth = new AtomicLong();
+
+        Stage(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return unit of items: bytes or records
+         */
+        public String getUnit() {
+            return unit;
+        }
+
+        /**
+         * @return count of processed items: bytes for reader, records for parser and aggregator
+         */
+        public long getItems() {
+            return items.get();
+        }
+
+        /**
+         * @return count of batches passed to the next stage
+         */
+        public long getBatches() {
+            return batches.get();
+        }
+
+        /**
+         * @return time of own work, summed over workers of stage
+         */
+        public long getBusyNanos() {
+            return busyNanos.get();
+        }
+
+        /**
+         * @return time of waiting for input or free buffers, summed over workers of stage
+         */
+        public long getWaitNanos() {
+            return waitNanos.get();
+        }
+
+        /**
+         * @return average count of batches in output queue, seen when batch is added. Full queue means slow next stage
+         */
+        public double getAverageQueueDepth() {
+            long count = batches.get();
+            return count == 0 ? 0 : (double) queueDepthSum.get() / count;
+        }
+
+        public long getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        /**
+         * @return processed items per second of busy time
+         */
+        public double getThroughput() {
+            long nanos = busyNanos.get();
+            return nanos == 0 ? 0 : items.get() * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d %s, %.0f %s/s, busy %d ms, waiting %d ms, output queue depth avg %.1f, max %d",
+                    name, getItems(), unit, getThroughput(), unit, busyNanos.get() / 1_000_000, waitNanos.get() / 1_000_000,
+                    getAverageQueueDepth(), getMaxQueueDepth());
+        }
+
+        /**
+         * @param waitedNanos - time of waiting for other stages after start, it is not busy time
+         */
+        private void busy(long started, long processedItems, long waitedNanos) {
+            busyNanos.addAndGet(System.nanoTime() - started - waitedNanos);
+            items.addAndGet(processedItems);
+        }
+
+        private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+            long started = System.nanoTime();
+            T item = queue.take();
+            waitNanos.addAndGet(System.nanoTime() - started);
+            return item;
+        }
+
+        private void put(BlockingQueue<Batch> queue, Batch item) throws InterruptedException {
+            if (item != END_OF_BATCHES) {
+                items.addAndGet(item.size);
+            }
+            putItem(queue, item);
+        }
+
+        private void put(BlockingQueue<Block> queue, Block item) throws InterruptedException {
+            putItem(queue, item);
+        }
+
+        private <T> void putItem(BlockingQueue<T> queue, T item) throws InterruptedException {
+            long started = System.nanoTime();
+            queue.put(item);
+            waitNanos.addAndGet(System.nanoTime() - started);
+            int depth = queue.size();
+            queueDepthSum.addAndGet(depth);
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+            batches.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reusable buffer of whole lines.
+     */
+    private static class Block {
+        private byte[] data;
+        private int length;
+
+        private Block(int size) {
+            data = new byte[size];
+        }
+
+        /**
+         * @return position after the last line feed or 0, if block has no line feed
+         */
+        private int lastLineEnd() {
+            for (int i = length - 1; i >= 0; i--) {
+                if (data[i] == '\n') return i + 1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Reusable batch of parsed records in primitive arrays.
+     */
+    private static class Batch implements Parser.RecordSink {
+        private final long[] requestTimes = new long[BATCH_SIZE];
+        private final String[] resourceNames = new String[BATCH_SIZE];
+        private final long[] requestDurations = new long[BATCH_SIZE];
+        private int size;
+
+        @Override
+        public void accept(long requestTime, String resourceName, long requestDuration) {
+            requestTimes[size] = requestTime;
+            resourceNames[size] = resourceName;
+            requestDurations[size] = requestDuration;
+            size++;
+        }
+    }
+}
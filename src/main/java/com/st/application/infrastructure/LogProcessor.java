@@ -0,0 +1,346 @@
+package com.st.application.infrastructure;
+
+import com.st.application.Parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parse log files into aggregate. Several files are parsed by workers file by file. Single file is split into byte ranges
+ * aligned to line boundaries, every range is parsed by own worker into partial aggregate, and partial aggregates are merged at the end.
+ */
+public class LogProcessor {
+    private final static Logger log = Logger.getLogger(LogProcessor.class.getName());
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private static final int DECOMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * How plain log file is read.
+     */
+    public enum FileMode {
+        /**
+         * Parse whole file
+         */
+        WHOLE,
+        /**
+         * Resume from aggregate snapshot of whole file, see AggregateSnapshot
+         */
+        SNAPSHOT,
+        /**
+         * Seek time window in file ordered by time, see LogSeeker
+         */
+        SEEK,
+        /**
+         * Answer from index of file ordered by time, see LogIndex
+         */
+        INDEX
+    }
+
+    /**
+     * Parse several log files into one aggregate. Every file is parsed by own worker into partial aggregate,
+     * so reading, decompression and parsing of different files go in parallel. Single file is split to ranges between workers.
+     *
+     * @param files         - plain or gzip compressed (.gz) log files
+     * @param parserFactory - creates parser for every worker
+     * @param threads       - count of workers
+     * @param useSnapshots  - resume plain files from aggregate snapshots, see AggregateSnapshot
+     * @return aggregate of all files
+     * @throws IOException on read error
+     */
+    public static LogAggregator process(List<Path> files, Supplier<Parser> parserFactory, int threads, boolean useSnapshots) throws IOException {
+        return process(files, parserFactory, threads, useSnapshots ? FileMode.SNAPSHOT : FileMode.WHOLE, LogFilter.ALL);
+    }
+
+    /**
+     * Parse several log files into one aggregate, see process(List, Supplier, int, boolean).
+     *
+     * @param mode   - how plain files are read. Compressed files are always parsed whole
+     * @param filter - filter to seek time window or to query index. Parsers should apply the same filter
+     */
+    public static LogAggregator process(List<Path> files, Supplier<Parser> parserFactory, int threads, FileMode mode,
+                                        LogFilter filter) throws IOException {
+        if (files.size() == 1) {
+            return processFile(files.get(0), parserFactory, threads, mode, filter);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<LogAggregator>> parts = new ArrayList<>();
+            for (Path file : files) {
+                parts.add(executor.submit(() -> processFile(file, parserFactory, 1, mode, filter)));
+            }
+            return mergeAll(parts);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param file          - plain or gzip compressed (.gz) log file
+     * @param parserFactory - creates parser for every worker
+     * @param threads       - count of workers. Compressed file can not be split into ranges,
+     *                      so with several workers it is parsed by pipeline of reader, parsers and aggregator, see LogPipeline
+     * @param mode          - how plain file is read. Compressed file is always parsed whole
+     * @param filter        - filter to seek time window or to query index. Parser should apply the same filter
+     * @return aggregate of file
+     * @throws IOException on read error
+     */
+    public static LogAggregator processFile(Path file, Supplier<Parser> parserFactory, int threads, FileMode mode,
+                                            LogFilter filter) throws IOException {
+        if (LogFiles.isCompressed(file)) {
+            return parseCompressed(file, parserFactory, threads);
+        }
+        switch (mode) {
+            case SNAPSHOT:
+                return AggregateSnapshot.process(file, parserFactory, threads);
+            case SEEK:
+                return filter.hasTimeBounds() ? process(file, parserFactory, threads, filter) : process(file, parserFactory, threads);
+            case INDEX:
+                return LogIndex.process(file, parserFactory, threads, filter);
+            default:
+                return process(file, parserFactory, threads);
+        }
+    }
+
+    /**
+     * @param file          - log file
+     * @param parserFactory - creates parser for every worker
+     * @param threads       - count of workers. Single worker parses file in current thread
+     * @return aggregate of whole file
+     * @throws IOException on read error
+     */
+    public static LogAggregator process(Path file, Supplier<Parser> parserFactory, int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return process(channel, 0, channel.size(), parserFactory, threads);
+        }
+    }
+
+    /**
+     * Parse only time window of file ordered by time. Window is found by binary search, so bytes out of it are not read.
+     *
+     * @param file          - log file with not decreasing date-times
+     * @param parserFactory - creates parser for every worker
+     * @param threads       - count of workers. Single worker parses window in current thread
+     * @param timeWindow    - filter with time window
+     * @return aggregate of window
+     * @throws IOException on read error
+     */
+    public static LogAggregator process(Path file, Supplier<Parser> parserFactory, int threads, LogFilter timeWindow) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] window = LogSeeker.seek(channel, 0, channel.size(), timeWindow);
+            log.log(Level.FINE, file + " window " + window[0] + "-" + window[1] + " of " + channel.size() + " bytes");
+            return process(channel, window[0], window[1], parserFactory, threads);
+        }
+    }
+
+    /**
+     * @param channel       - opened log file channel
+     * @param start         - first byte of range, should be line start
+     * @param end           - last byte of range, exclusive
+     * @param parserFactory - creates parser for every worker
+     * @param threads       - count of workers. Single worker parses range in current thread
+     * @return aggregate of range
+     * @throws IOException on read error
+     */
+    public static LogAggregator process(FileChannel channel, long start, long end, Supplier<Parser> parserFactory, int threads) throws IOException {
+        long[] bounds = split(channel, start, end, threads);
+        if (threads == 1) {
+            return parseRange(channel, bounds[0], bounds[1], parserFactory.get());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<LogAggregator>> parts = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                long partStart = bounds[i];
+                long partEnd = bounds[i + 1];
+                parts.add(executor.submit(() -> parseRange(channel, partStart, partEnd, parserFactory.get())));
+            }
+
+            return mergeAll(parts);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Split file into ranges with nearly equal size. Every bound, except first and last, points to the byte after line feed.
+     *
+     * @param channel - opened file channel
+     * @param parts   - count of ranges
+     * @return bounds of ranges: range i is [bounds[i], bounds[i + 1])
+     * @throws IOException on read error
+     */
+    public static long[] split(FileChannel channel, int parts) throws IOException {
+        return split(channel, 0, channel.size(), parts);
+    }
+
+    /**
+     * Split byte range of file into ranges with nearly equal size, aligned to line boundaries.
+     *
+     * @return bounds of ranges: range i is [bounds[i], bounds[i + 1])
+     * @throws IOException on read error
+     */
+    public static long[] split(FileChannel channel, long start, long end, int parts) throws IOException {
+        long[] bounds = new long[parts + 1];
+        bounds[0] = start;
+        bounds[parts] = end;
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        for (int i = 1; i < parts; i++) {
+            long position = Math.max(bounds[i - 1], start + (end - start) / parts * i);
+            bounds[i] = position == start ? start : nextLineStart(channel, position - 1, end, buffer);
+        }
+        return bounds;
+    }
+
+    /**
+     * @param channel - opened file channel
+     * @param start   - first byte of searched range
+     * @param end     - last byte of searched range, exclusive
+     * @return position after last line feed in range, or start if range has no line feed
+     * @throws IOException on read error
+     */
+    public static long lastLineEnd(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long blockEnd = end;
+        while (blockEnd > start) {
+            long blockStart = Math.max(start, blockEnd - SCAN_BUFFER_SIZE);
+            buffer.clear();
+            buffer.limit((int) (blockEnd - blockStart));
+            int count = 0;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, blockStart + count);
+                if (read < 0) break;
+                count += read;
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') return blockStart + i + 1;
+            }
+            blockEnd = blockStart;
+        }
+        return start;
+    }
+
+    /**
+     * Streaming parse of byte range of file. Range parser reads bytes itself, for other parsers range is decoded to lines
+     * as UTF-8 and malformed input is reported as error, like Files.lines does.
+     *
+     * @param parser  - parser of lines
+     * @param channel - opened log file channel, not closed by this method
+     * @param start   - first byte of range, should be line start
+     * @param end     - last byte of range, exclusive
+     * @param sink    - receiver of parsed values
+     * @throws IOException on read error. Decoding errors are thrown as UncheckedIOException
+     */
+    public static void parse(Parser parser, FileChannel channel, long start, long end, Parser.RecordSink sink) throws IOException {
+        if (parser instanceof Parser.RangeParser) {
+            ((Parser.RangeParser) parser).parse(channel, start, end, sink);
+            return;
+        }
+        try (BufferedReader reader = FileRangeInputStream.newReader(channel, start, end)) {
+            parser.parse(reader, sink);
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int count = channel.read(buffer, position);
+            if (count <= 0) break;
+            for (int i = 0; i < count; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += count;
+        }
+        return size;
+    }
+
+    private static LogAggregator parseRange(FileChannel channel, long start, long end, Parser parser) throws IOException {
+        long[] usage = Instrumentation.begin();
+        try {
+            LogAggregator aggregator = new LogAggregator(parser.getMaxResources());
+            parse(parser, channel, start, end, aggregator);
+            countLines(aggregator, parser);
+            Instrumentation.addInputBytes(end - start);
+            return aggregator;
+        } finally {
+            Instrumentation.end(usage);
+        }
+    }
+
+    private static LogAggregator parseCompressed(Path file, Supplier<Parser> parserFactory, int threads) throws IOException {
+        long[] usage = Instrumentation.begin();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file), DECOMPRESSION_BUFFER_SIZE)) {
+            LogAggregator aggregator;
+            if (threads > 1) {
+                LogPipeline pipeline = new LogPipeline(parserFactory, threads);
+                aggregator = pipeline.process(in);
+                pipeline.getStages().forEach(stage -> log.log(Level.FINE, file + " " + stage));
+                Instrumentation.addPipelineStages(pipeline.getStages());
+            } else {
+                Parser parser = parserFactory.get();
+                aggregator = new LogAggregator(parser.getMaxResources());
+                parser.parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder())), aggregator);
+                countLines(aggregator, parser);
+            }
+            Instrumentation.addInputBytes(Files.size(file));
+            return aggregator;
+        } finally {
+            Instrumentation.end(usage);
+        }
+    }
+
+    static void countLines(LogAggregator aggregator, Parser parser) {
+        Parser.LineCounters lineCounters = parser.getLineCounters();
+        if (lineCounters != null) {
+            aggregator.getLineCounters().add(lineCounters);
+        }
+    }
+
+    /**
+     * Merge partial aggregates in order of parts, so result does not depend on finish order of workers.
+     * Limit of resources is taken from parts.
+     */
+    private static LogAggregator mergeAll(List<Future<LogAggregator>> parts) throws IOException {
+        try {
+            LogAggregator aggregator = new LogAggregator();
+            for (Future<LogAggregator> part : parts) {
+                aggregator.merge(part.get());
+            }
+            return aggregator;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parsing interrupted");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException) return (IOException) cause;
+        if (cause instanceof UncheckedIOException) return ((UncheckedIOException) cause).getCause();
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new IOException(cause);
+    }
+}
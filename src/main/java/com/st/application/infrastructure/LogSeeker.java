@@ -0,0 +1,137 @@
+package com.st.application.infrastructure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary search of time window in log file ordered by time. Only a few blocks around probed offsets are read,
+ * so parsing of one hour of week-long log starts and stops at bounds of the hour instead of reading the whole file.
+ * Lines without date-time at the start (stack traces, garbage) are skipped while probing.
+ * Result is correct only for file with not decreasing date-times.
+ */
+public class LogSeeker {
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    private static final int DATE_TIME_LENGTH = 23;
+
+    /**
+     * @param channel - opened log file channel, ordered by time
+     * @param start   - first byte of searched range, should be line start
+     * @param end     - last byte of searched range, exclusive
+     * @param filter  - filter with time window
+     * @return bounds of window: {start of first line inside window, start of first line after window}, aligned to line boundaries
+     * @throws IOException on read error
+     */
+    public static long[] seek(FileChannel channel, long start, long end, LogFilter filter) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long windowStart = filter.getFrom() == null ? start : seek(channel, start, end, filter.getFrom(), false, buffer);
+        long windowEnd = filter.getTo() == null ? end : seek(channel, windowStart, end, filter.getTo(), true, buffer);
+        return new long[]{windowStart, windowEnd};
+    }
+
+    /**
+     * @param channel - opened log file channel, ordered by time
+     * @param start   - first byte of searched range, should be line start
+     * @param end     - last byte of searched range, exclusive
+     * @param bound   - date-time prefix
+     * @return start of first line with date-time after bound, cut to bound length, or end, if there is no such line
+     * @throws IOException on read error
+     */
+    public static long seekAfter(FileChannel channel, long start, long end, String bound) throws IOException {
+        return seek(channel, start, end, bound, true, ByteBuffer.allocate(SCAN_BUFFER_SIZE));
+    }
+
+    /**
+     * @param channel - opened log file channel
+     * @param start   - first byte of searched range, should be line start
+     * @param end     - last byte of searched range, exclusive
+     * @return date-time of first line in range, which starts with date-time, or null, if there is no such line
+     * @throws IOException on read error
+     */
+    public static String firstDateTime(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long line = nextDateTimeLine(channel, start, end, buffer);
+        return line < end ? readDateTime(channel, line, buffer) : null;
+    }
+
+    /**
+     * Find first line with date-time, which is not before bound (after = false) or is after bound (after = true).
+     * Lines with date-time are ordered, so the condition is false for lines before the found one and true for lines after it.
+     *
+     * @return start of found line or end, if there is no such line
+     */
+    private static long seek(FileChannel channel, long start, long end, String bound, boolean after, ByteBuffer buffer) throws IOException {
+        long low = start;
+        long high = end;
+        long found = end;
+        // found line is in [low, high) or it is already found beyond high
+        while (high - low > SCAN_BUFFER_SIZE) {
+            long middle = low + (high - low) / 2;
+            long line = nextLineStart(channel, middle - 1, high, buffer);
+            if (line >= high) break;
+            long dateTimeLine = nextDateTimeLine(channel, line, high, buffer);
+            if (dateTimeLine >= high) {
+                high = line;
+            } else if (passes(readDateTime(channel, dateTimeLine, buffer), bound, after)) {
+                found = dateTimeLine;
+                high = line;
+            } else {
+                low = dateTimeLine;
+            }
+        }
+
+        for (long line = nextDateTimeLine(channel, low, high, buffer); line < high; line = nextDateTimeLine(channel, nextLineStart(channel, line, high, buffer), high, buffer)) {
+            if (passes(readDateTime(channel, line, buffer), bound, after)) return line;
+        }
+        return found;
+    }
+
+    private static boolean passes(String dateTime, String bound, boolean after) {
+        int comparison = LogFilter.compare(dateTime, bound);
+        return after ? comparison > 0 : comparison >= 0;
+    }
+
+    /**
+     * @return start of first line at or after position with date-time, or limit
+     */
+    private static long nextDateTimeLine(FileChannel channel, long position, long limit, ByteBuffer buffer) throws IOException {
+        while (position < limit && readDateTime(channel, position, buffer) == null) {
+            position = nextLineStart(channel, position, limit, buffer);
+        }
+        return Math.min(position, limit);
+    }
+
+    /**
+     * @return date-time at line start or null, if line does not start with date-time
+     */
+    private static String readDateTime(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        buffer.limit(DATE_TIME_LENGTH);
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + count);
+            if (read < 0) break;
+            count += read;
+        }
+        String dateTime = new String(buffer.array(), 0, count, StandardCharsets.ISO_8859_1);
+        return LogFilter.isDateTime(dateTime) ? dateTime : null;
+    }
+
+    /**
+     * @return position after first line feed at or after position, or limit
+     */
+    private static long nextLineStart(FileChannel channel, long position, long limit, ByteBuffer buffer) throws IOException {
+        while (position < limit) {
+            buffer.clear();
+            buffer.limit((int) Math.min(SCAN_BUFFER_SIZE, limit - position));
+            int count = channel.read(buffer, position);
+            if (count <= 0) break;
+            for (int i = 0; i < count; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += count;
+        }
+        return limit;
+    }
+}
@@ -3,14 +3,16 @@ package com.st.application.infrastructure;
 import com.st.application.Parser;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Util for working with parsed data from logs.
  */
 public class LogUtil {
+    private static final long MILLIS_IN_HOUR = 3_600_000L;
 
     /**
      * Build statistics for average duration by request-resource.
@@ -19,12 +21,7 @@ public class LogUtil {
      * @return sorted map. Key: resource name of grouped by  and summarized duration. Sorted from fresh request to oldest.
      */
     public static Map<String, Double> buildAvgDurationByResource(List<Parser.Data> logs, Integer maxResultLinesCount){
-        maxResultLinesCount = maxResultLinesCount != null ? maxResultLinesCount : Integer.MAX_VALUE;
-        return logs.stream().collect(Collectors.groupingBy(Parser.Data::getResourceName, Collectors.averagingLong(Parser.Data::getRequestDuration)))
-                .entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .limit(maxResultLinesCount)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (o1, o2) -> o1, LinkedHashMap::new));
+        return aggregate(logs).getAvgDurationByResource(maxResultLinesCount);
     }
 
     /**
@@ -34,27 +31,57 @@ public class LogUtil {
      * @return sorted map. Key: LocalDateTime grouped by hour. Value: summarized duration in this hour. Sorted from fresh time to oldest.
      */
     public static Map<LocalDateTime, Long> buildDurationSumByHour(List<Parser.Data> logs) {
-        Map<LocalDateTime, List<Parser.Data>> groupByHour = new LinkedHashMap<>();
-        LocalDateTime truncatedTime;
-
-        for (Parser.Data log : logs) {
-            truncatedTime = log.getRequestTime().plusHours(1).truncatedTo(ChronoUnit.HOURS);
-            if (groupByHour.containsKey(truncatedTime)) {
-                List<Parser.Data> logList = groupByHour.get(truncatedTime);
-                logList.add(log);
-            } else {
-                groupByHour.put(truncatedTime, new ArrayList<>(Collections.singletonList(log)));
-            }
-        }
+        return aggregate(logs).getDurationSumByHour();
+    }
+
+    /**
+     * Accumulate data one record at a time into aggregator.
+     *
+     * @param logs - valid data from parsed string
+     * @return filled aggregator
+     */
+    public static LogAggregator aggregate(List<Parser.Data> logs) {
+        LogAggregator aggregator = new LogAggregator();
+        logs.forEach(aggregator);
+        return aggregator;
+    }
+
+    /**
+     * Hour bucket of request: request is counted in the next hour, 10:15 is in the bucket of 11:00.
+     *
+     * @param requestTime - request local date-time as milliseconds from 1970-01-01T00:00
+     * @return hours from 1970-01-01T00:00
+     */
+    public static long toHour(long requestTime) {
+        return Math.floorDiv(requestTime, MILLIS_IN_HOUR) + 1;
+    }
 
-        Map<LocalDateTime, Long> sumDurationByHour = groupByHour.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        list -> list.getValue()
-                                .stream()
-                                .mapToLong(Parser.Data::getRequestDuration)
-                                .sum()));
+    /**
+     * @param hour - hours from 1970-01-01T00:00
+     * @return local date-time of hour start
+     */
+    public static LocalDateTime toDateTime(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * MILLIS_IN_HOUR / 1000, 0, ZoneOffset.UTC);
+    }
 
-        return new TreeMap<>(sumDurationByHour);
+    /**
+     * @param resources           - resource names by id
+     * @param counts              - count of requests by resource id
+     * @param sums                - sum of durations by resource id
+     * @param excludedId          - id of not ranked resource, -1 if all resources are ranked
+     * @param maxResultLinesCount - setup limit to result records count. Null value will be as Integer.MAX_VALUE
+     * @return map sorted from highest average to lowest, equal averages by resource name
+     */
+    static Map<String, Double> topByAverage(ResourceDictionary resources, long[] counts, long[] sums, int excludedId, Integer maxResultLinesCount) {
+        double[] averages = new double[resources.size()];
+        for (int id = 0; id < averages.length; id++) {
+            averages[id] = (double) sums[id] / counts[id];
+        }
+
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int id : TopN.select(averages, resources, excludedId, maxResultLinesCount)) {
+            result.put(resources.getName(id), averages[id]);
+        }
+        return result;
     }
 }
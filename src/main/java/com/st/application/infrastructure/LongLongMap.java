@@ -0,0 +1,110 @@
+package com.st.application.infrastructure;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from long key to long value without boxing. Used for sums by hour.
+ * Not thread-safe.
+ */
+public class LongLongMap {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long FREE_KEY = Long.MIN_VALUE;
+
+    private long[] keys = newKeys(INITIAL_CAPACITY);
+    private long[] values = new long[INITIAL_CAPACITY];
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+    private int size;
+
+    /**
+     * Add delta to value of key. Absent key starts from zero.
+     */
+    public void add(long key, long delta) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue += delta;
+            return;
+        }
+
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            if (keys[slot] == FREE_KEY) {
+                keys[slot] = key;
+                values[slot] = delta;
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return value of key or zero for absent key
+     */
+    public long get(long key) {
+        if (key == FREE_KEY) return freeKeyValue;
+
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return values[slot];
+            if (keys[slot] == FREE_KEY) return 0;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit all entries in undefined order.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY, freeKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = newKeys(oldKeys.length * 2);
+        values = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == FREE_KEY) continue;
+            int slot = slot(oldKeys[i], mask);
+            while (keys[slot] != FREE_KEY) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        return keys;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
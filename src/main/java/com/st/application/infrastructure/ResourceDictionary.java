@@ -0,0 +1,147 @@
+package com.st.application.infrastructure;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary of resource names with small integer ids: 0, 1, 2... in order of first sight.
+ * Name is looked up by chars range of line without substring, so String is created only when name is seen first time.
+ * Count of names may be limited: when dictionary is full, new names are not kept, so memory of parser stays bounded
+ * even for log with unlimited count of distinct names, like random 'action' values.
+ * Names beyond limit of report are folded into OTHER by LogAggregator.
+ * Not thread-safe.
+ */
+public class ResourceDictionary {
+    /**
+     * Name of overflow bucket of LogAggregator. Parentheses are not allowed in resource names of log, so it does not clash with real resource.
+     */
+    public static final String OTHER = "(other)";
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxSize;
+    private int[] slots = newSlots(INITIAL_CAPACITY);
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY / 2];
+    private int size;
+
+    public ResourceDictionary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSize - count of kept names, after which new names are not added
+     */
+    public ResourceDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param text  - line contains name
+     * @param start - first char of name, inclusive
+     * @param end   - last char of name, exclusive
+     * @return id of name. New id is added for unknown name, or -1 if dictionary is full
+     */
+    public int getId(CharSequence text, int start, int end) {
+        return lookup(text, start, end, true);
+    }
+
+    /**
+     * @return id of name. New id is added for unknown name, or -1 if dictionary is full
+     */
+    public int getId(String name) {
+        return lookup(name, 0, name.length(), true);
+    }
+
+    /**
+     * @return id of known name, or -1 without adding of unknown name
+     */
+    public int find(String name) {
+        return lookup(name, 0, name.length(), false);
+    }
+
+    /**
+     * @return the same String instance for equal names. New String is created every time for unknown name, if dictionary is full
+     */
+    public String intern(CharSequence text, int start, int end) {
+        int id = getId(text, start, end);
+        return id < 0 ? text.subSequence(start, end).toString() : names[id];
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int lookup(CharSequence text, int start, int end, boolean add) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id < 0) {
+                if (!add || size >= maxSize) return -1;
+                return add(slot, hash, text.subSequence(start, end).toString());
+            }
+            if (hashes[slot] == hash && contentEquals(names[id], text, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    private int add(int slot, int hash, String name) {
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[id] = name;
+        slots[slot] = id;
+        hashes[slot] = hash;
+        if (size * 2 > slots.length) {
+            resize();
+        }
+        return id;
+    }
+
+    private void resize() {
+        int[] oldSlots = slots;
+        int[] oldHashes = hashes;
+        slots = newSlots(oldSlots.length * 2);
+        hashes = new int[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] < 0) continue;
+            int slot = oldHashes[i] & mask;
+            while (slots[slot] >= 0) slot = (slot + 1) & mask;
+            slots[slot] = oldSlots[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        return slots;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        if (text instanceof String && start == 0 && end == text.length()) {
+            int hash = text.hashCode();
+            return hash ^ (hash >>> 16);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(String name, CharSequence text, int start, int end) {
+        if (name == text && start == 0 && end == name.length()) return true;
+        if (name.length() != end - start) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+package com.st.application.infrastructure;
+
+/**
+ * Top resources ranked by statistic of request duration: average or percentile.
+ * Keeps ids of selected resources in result order and reads names and histograms from aggregate by index,
+ * so report can iterate it several times without building maps.
+ * Resources beyond limit of aggregate are not ranked: their requests are reported apart as ResourceDictionary.OTHER.
+ */
+public class ResourceRanking {
+    private final String statistic;
+    private final int[] ids;
+    private final double[] values;
+    private final ResourceDictionary resources;
+    private final long[] counts;
+    private final DurationHistogram[] histograms;
+    private final int otherId;
+    private final int maxResources;
+
+    ResourceRanking(String statistic, int[] ids, double[] values, ResourceDictionary resources, long[] counts, DurationHistogram[] histograms,
+                    int otherId, int maxResources) {
+        this.statistic = statistic;
+        this.ids = ids;
+        this.values = values;
+        this.resources = resources;
+        this.counts = counts;
+        this.histograms = histograms;
+        this.otherId = otherId;
+        this.maxResources = maxResources;
+    }
+
+    /**
+     * @return name of ranking statistic: 'average', 'p99'...
+     */
+    public String getStatistic() {
+        return statistic;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param rank - index in ranking, from 0
+     */
+    public String getName(int rank) {
+        return resources.getName(ids[rank]);
+    }
+
+    /**
+     * @return value of ranking statistic
+     */
+    public double getValue(int rank) {
+        return values[ids[rank]];
+    }
+
+    /**
+     * @return count of requests of resource
+     */
+    public long getCount(int rank) {
+        return counts[ids[rank]];
+    }
+
+    public DurationHistogram getHistogram(int rank) {
+        return histograms[ids[rank]];
+    }
+
+    /**
+     * @return true, if aggregate has requests of resources beyond limit, counted together as ResourceDictionary.OTHER
+     */
+    public boolean hasOther() {
+        return otherId >= 0;
+    }
+
+    /**
+     * @return limit of resources in aggregate. Kept resources are chosen by hash of name, not by duration,
+     * so slow resource may be counted in OTHER
+     */
+    public int getMaxResources() {
+        return maxResources;
+    }
+
+    /**
+     * @return value of ranking statistic for all requests of OTHER
+     */
+    public double getOtherValue() {
+        return values[otherId];
+    }
+
+    public long getOtherCount() {
+        return counts[otherId];
+    }
+
+    public DurationHistogram getOtherHistogram() {
+        return histograms[otherId];
+    }
+}
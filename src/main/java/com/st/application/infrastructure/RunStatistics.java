@@ -0,0 +1,159 @@
+package com.st.application.infrastructure;
+
+import com.st.application.Parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistics of program run by phases: wall time, CPU time and allocated bytes of all measured threads, garbage collections.
+ * Phase is measured by Instrumentation counters at its start and end. Input rates are calculated by wall time of parse phase.
+ * Stages of pipelines, which parsed compressed files in phases, are kept with their throughput and queue depth.
+ */
+public class RunStatistics {
+    public static final String PARSE_PHASE = "parse";
+
+    private final List<Phase> phases = new ArrayList<>();
+    private Phase current;
+    private long[] currentThreadUsage;
+    private Parser.LineCounters lineCounters = new Parser.LineCounters();
+
+    /**
+     * Start phase in current thread. Previous phase is finished.
+     *
+     * @param name - phase name
+     */
+    public void startPhase(String name) {
+        endPhase();
+        currentThreadUsage = Instrumentation.begin();
+        current = new Phase(name);
+    }
+
+    /**
+     * Finish current phase, if it is started.
+     */
+    public void endPhase() {
+        if (current == null) return;
+        Instrumentation.end(currentThreadUsage);
+        current.finish();
+        phases.add(current);
+        current = null;
+    }
+
+    public void setLineCounters(Parser.LineCounters lineCounters) {
+        this.lineCounters = lineCounters;
+    }
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    public Parser.LineCounters getLineCounters() {
+        return lineCounters;
+    }
+
+    /**
+     * @return stages of pipelines finished in phases: read, parse and aggregate stage of every pipeline
+     */
+    public List<LogPipeline.Stage> getPipelineStages() {
+        List<LogPipeline.Stage> stages = new ArrayList<>();
+        for (Phase phase : phases) {
+            stages.addAll(phase.pipelineStages);
+        }
+        return stages;
+    }
+
+    /**
+     * @return bytes of input read in parse phase. Compressed file is counted by compressed size
+     */
+    public long getInputBytes() {
+        Phase parse = getPhase(PARSE_PHASE);
+        return parse != null ? parse.inputBytes : 0;
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(getInputBytes());
+    }
+
+    public double getLinesPerSecond() {
+        return perSecond(lineCounters.getTotalLines());
+    }
+
+    private double perSecond(long count) {
+        Phase parse = getPhase(PARSE_PHASE);
+        return parse != null && parse.wallNanos > 0 ? count * 1e9 / parse.wallNanos : 0;
+    }
+
+    private Phase getPhase(String name) {
+        for (Phase phase : phases) {
+            if (phase.name.equals(name)) return phase;
+        }
+        return null;
+    }
+
+    /**
+     * Usage of one phase. CPU time and allocated bytes are -1, if JVM does not support them.
+     */
+    public static class Phase {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startCpuNanos = Instrumentation.getCpuNanos();
+        private final long startAllocatedBytes = Instrumentation.getAllocatedBytes();
+        private final long startInputBytes = Instrumentation.getInputBytes();
+        private final long[] startGcUsage = Instrumentation.getGcUsage();
+        private final int startPipelineStages = Instrumentation.getPipelineStages().size();
+        private List<LogPipeline.Stage> pipelineStages = Collections.emptyList();
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+        private long inputBytes;
+        private long gcCount;
+        private long gcMillis;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private void finish() {
+            wallNanos = System.nanoTime() - startNanos;
+            long cpu = Instrumentation.getCpuNanos();
+            cpuNanos = cpu >= 0 ? cpu - startCpuNanos : -1;
+            long allocated = Instrumentation.getAllocatedBytes();
+            allocatedBytes = allocated >= 0 ? allocated - startAllocatedBytes : -1;
+            inputBytes = Instrumentation.getInputBytes() - startInputBytes;
+            long[] gcUsage = Instrumentation.getGcUsage();
+            gcCount = gcUsage[0] - startGcUsage[0];
+            gcMillis = gcUsage[1] - startGcUsage[1];
+            List<LogPipeline.Stage> stages = Instrumentation.getPipelineStages();
+            pipelineStages = stages.subList(startPipelineStages, stages.size());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return CPU time of all threads worked in phase. Above wall time, if threads worked in parallel
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcMillis() {
+            return gcMillis;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.st.application.infrastructure;
+
+/**
+ * Selection of top resources by score. Order: higher score first, equal scores by resource name.
+ * Limited selection keeps bounded min-heap of ids, so it costs O(R log N) for R resources instead of sorting all of them.
+ */
+public class TopN {
+    private final double[] scores;
+    private final ResourceDictionary resources;
+
+    private TopN(double[] scores, ResourceDictionary resources) {
+        this.scores = scores;
+        this.resources = resources;
+    }
+
+    /**
+     * @param scores    - score by resource id
+     * @param resources - resource names by id, size of dictionary is count of resources
+     * @param limit     - max count of result ids. Null value will be as Integer.MAX_VALUE
+     * @return ids of top resources in result order
+     */
+    public static int[] select(double[] scores, ResourceDictionary resources, Integer limit) {
+        return select(scores, resources, -1, limit);
+    }
+
+    /**
+     * @param scores     - score by resource id
+     * @param resources  - resource names by id
+     * @param excludedId - id of resource, which is not selected, like ResourceDictionary.OTHER. -1 if all resources are selected
+     * @param limit      - max count of result ids. Null value will be as Integer.MAX_VALUE
+     * @return ids of top resources in result order
+     */
+    public static int[] select(double[] scores, ResourceDictionary resources, int excludedId, Integer limit) {
+        int count = resources.size() - (excludedId >= 0 ? 1 : 0);
+        int size = limit == null ? count : Math.max(0, Math.min(limit, count));
+        TopN order = new TopN(scores, resources);
+        int[] heap = new int[size];
+        if (size == 0) return heap;
+
+        if (size == count) {
+            for (int id = 0, i = 0; id < resources.size(); id++) {
+                if (id != excludedId) heap[i++] = id;
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                order.siftDown(heap, i, size);
+            }
+        } else {
+            int filled = 0;
+            for (int id = 0; id < resources.size(); id++) {
+                if (id == excludedId) continue;
+                if (filled < size) {
+                    heap[filled] = id;
+                    order.siftUp(heap, filled++);
+                } else if (order.compare(id, heap[0]) < 0) {
+                    heap[0] = id;
+                    order.siftDown(heap, 0, size);
+                }
+            }
+        }
+
+        // heap root is the worst of selected: move it to the end, until heap is empty
+        for (int end = size - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            order.siftDown(heap, 0, end);
+        }
+        return heap;
+    }
+
+    /**
+     * @return negative, if resource a goes before resource b in result
+     */
+    private int compare(int a, int b) {
+        int result = Double.compare(scores[b], scores[a]);
+        return result != 0 ? result : resources.getName(a).compareTo(resources.getName(b));
+    }
+
+    private void siftUp(int[] heap, int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compare(id, heap[parent]) <= 0) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = id;
+    }
+
+    private void siftDown(int[] heap, int index, int size) {
+        int id = heap[index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) break;
+            if (child + 1 < size && compare(heap[child + 1], heap[child]) > 0) child++;
+            if (compare(id, heap[child]) >= 0) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = id;
+    }
+}
@@ -0,0 +1,51 @@
+package com.st.application.parsers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable char sequence view over bytes of one line in buffer. Every byte is one char (ISO-8859-1),
+ * which is exact for ASCII parts of line used by tokenizer.
+ */
+class AsciiLine implements CharSequence {
+    private ByteBuffer buffer;
+    private int start;
+    private int length;
+
+    /**
+     * @param buffer - buffer with line bytes
+     * @param start  - first byte of line, inclusive
+     * @param end    - last byte of line, exclusive
+     * @return this view
+     */
+    AsciiLine wrap(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = end - start;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.st.application.parsers;
+
+import com.st.application.Parser;
+import com.st.application.infrastructure.LogFilter;
+import com.st.application.infrastructure.ResourceDictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Log parser without regular expressions. Accept the same lines as LogParser and produce identical Data,
+ * but scan every line once by index with LogLineTokenizer. Equal resource names share one String instance from ResourceDictionary.
+ * Time window of filter is checked right after date-time shape, before line is tokenized.
+ * Not thread-safe: use own instance for every thread.
+ */
+public class FastLogParser implements Parser {
+    private final LogLineTokenizer tokenizer = new LogLineTokenizer();
+    private final ResourceDictionary resourceNames;
+    private final LineCounters lineCounters = new LineCounters();
+    private final LogFilter filter;
+    private final int maxResources;
+    private String resourceName;
+
+    public FastLogParser() {
+        this(LogFilter.ALL);
+    }
+
+    /**
+     * @param filter - lines out of time window or with skipped resources are counted as filtered, not parsed
+     */
+    public FastLogParser(LogFilter filter) {
+        this(filter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param filter       - lines out of time window or with skipped resources are counted as filtered, not parsed
+     * @param maxResources - count of reported resources (see LogAggregator) and of interned resource names
+     */
+    public FastLogParser(LogFilter filter, int maxResources) {
+        this.filter = filter;
+        this.resourceNames = new ResourceDictionary(maxResources);
+        this.maxResources = maxResources;
+    }
+
+    public Data parseLine(String line) {
+        if (!tokenize(line)) return null;
+        return new Data(tokenizer.getRequestTime(line), resourceName, tokenizer.getDuration());
+    }
+
+    @Override
+    public LineCounters getLineCounters() {
+        return lineCounters;
+    }
+
+    @Override
+    public int getMaxResources() {
+        return maxResources;
+    }
+
+    /**
+     * Parse lines without intermediate Data.
+     */
+    @Override
+    public void parse(BufferedReader reader, RecordSink sink) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parseLine(line, sink);
+        }
+    }
+
+    /**
+     * Parse single line and push values to sink.
+     *
+     * @param line - incoming dirty line
+     * @param sink - receiver of parsed values
+     * @return true, if line is valid
+     */
+    protected boolean parseLine(CharSequence line, RecordSink sink) {
+        if (!tokenize(line)) return false;
+        sink.accept(tokenizer.getRequestTimeMillis(line), resourceName, tokenizer.getDuration());
+        return true;
+    }
+
+    private boolean tokenize(CharSequence line) {
+        if (filter.hasTimeBounds() && LogLineTokenizer.hasDateTime(line) && !filter.acceptsTime(line)) {
+            lineCounters.countFilteredLine();
+            return false;
+        }
+        if (!tokenizer.tokenize(line)) {
+            lineCounters.countRejectedLine();
+            return false;
+        }
+        // name is checked by chars of line, so skipped names are not interned
+        if (!filter.acceptsResource(line, tokenizer.getResourceStart(), tokenizer.getResourceEnd())) {
+            lineCounters.countFilteredLine();
+            return false;
+        }
+        resourceName = resourceNames.intern(line, tokenizer.getResourceStart(), tokenizer.getResourceEnd());
+        if (tokenizer.isUriForm()) {
+            lineCounters.countUriLine();
+        } else {
+            lineCounters.countResourceLine();
+        }
+        return true;
+    }
+}
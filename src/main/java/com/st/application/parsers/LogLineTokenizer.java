@@ -0,0 +1,194 @@
+package com.st.application.parsers;
+
+import java.time.LocalDateTime;
+
+/**
+ * Regex-free tokenizer of log line. Scan line once by index and accept exactly the lines accepted by LogParser patterns:
+ * date-time is read by fixed offsets with TimestampDecoder, resource name is located as index range, duration is read as digits.
+ * Not thread-safe: keep state of last tokenized line.
+ */
+public class LogLineTokenizer {
+    public static final int DATE_TIME_LENGTH = TimestampDecoder.LENGTH;
+    private static final int CONTEXT_START = DATE_TIME_LENGTH + 2;
+    private static final String ACTION_PARAMETER = "action=";
+    private static final int MAX_SAFE_DURATION_DIGITS = 9;
+
+    private final TimestampDecoder timestampDecoder = new TimestampDecoder();
+
+    private int resourceStart;
+    private int resourceEnd;
+    private int duration;
+    private boolean uriForm;
+
+    /**
+     * Tokenize line. Resource form is tried first, then URI form with 'action' parameter, as LogParser does.
+     * Resource form: yyyy-MM-dd HH:mm:ss,SSS (...) [...] resourceName ...in N
+     * URI form:      yyyy-MM-dd HH:mm:ss,SSS (...) [not empty] /uri...action=resourceName... in N
+     *
+     * @param line - incoming dirty string
+     * @return true, if line is valid. Parsed values are available by getters until next call.
+     */
+    public boolean tokenize(CharSequence line) {
+        if (line == null) return false;
+        int length = line.length();
+        if (length < CONTEXT_START || !hasDateTimeShape(line)) return false;
+
+        // most of not matched lines fail here, before date-time digits are read
+        int durationStart = length;
+        while (durationStart > CONTEXT_START && isDigit(line.charAt(durationStart - 1))) durationStart--;
+        int inStart = durationStart - 3;
+        if (durationStart == length || inStart < CONTEXT_START
+                || line.charAt(inStart) != 'i' || line.charAt(inStart + 1) != 'n' || line.charAt(inStart + 2) != ' ') {
+            return false;
+        }
+
+        int contextEnd = indexOfContextEnd(line, inStart);
+        if (contextEnd < 0 || !timestampDecoder.decode(line)) return false;
+        if (findResource(line, contextEnd, inStart)) {
+            uriForm = false;
+        } else if (findAction(line, contextEnd, inStart)) {
+            uriForm = true;
+        } else {
+            return false;
+        }
+
+        duration = readDuration(line, durationStart, length);
+        return true;
+    }
+
+    /**
+     * Build date-time of last tokenized line. Values out of usual ranges (like 30th of February) are resolved
+     * by formatter, so result is the same as LocalDateTime.parse of date-time part.
+     */
+    public LocalDateTime getRequestTime(CharSequence line) {
+        return timestampDecoder.getDateTime(line);
+    }
+
+    /**
+     * Date-time of last tokenized line as milliseconds from 1970-01-01T00:00, equal to Data.getRequestTimeMillis.
+     */
+    public long getRequestTimeMillis(CharSequence line) {
+        return timestampDecoder.getMillis(line);
+    }
+
+    public int getResourceStart() {
+        return resourceStart;
+    }
+
+    public int getResourceEnd() {
+        return resourceEnd;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return true, if last tokenized line is matched by URI form, false for resource form
+     */
+    public boolean isUriForm() {
+        return uriForm;
+    }
+
+    /**
+     * @return true, if line starts with separators of date-time followed by " (", like every valid line
+     */
+    public static boolean hasDateTime(CharSequence line) {
+        return line != null && line.length() >= CONTEXT_START && hasDateTimeShape(line);
+    }
+
+    /**
+     * Separators of date-time, space and opening bracket of context. Digits are checked by TimestampDecoder.
+     */
+    private static boolean hasDateTimeShape(CharSequence line) {
+        return line.charAt(4) == '-' && line.charAt(7) == '-' && line.charAt(10) == ' ' && line.charAt(13) == ':'
+                && line.charAt(16) == ':' && line.charAt(19) == ',' && line.charAt(DATE_TIME_LENGTH) == ' '
+                && line.charAt(DATE_TIME_LENGTH + 1) == '(';
+    }
+
+    /**
+     * @return index of first ") [" after opening bracket of context
+     */
+    private static int indexOfContextEnd(CharSequence line, int limit) {
+        for (int i = CONTEXT_START; i + 2 < limit; i++) {
+            if (line.charAt(i) == ')' && line.charAt(i + 1) == ' ' && line.charAt(i + 2) == '[') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Resource form. Greedy groups of pattern take the last "] " followed by [a-z][\w]* and space before trailing "in N".
+     */
+    private boolean findResource(CharSequence line, int contextEnd, int inStart) {
+        for (int i = inStart - 4; i >= contextEnd + 3; i--) {
+            if (line.charAt(i) == ']' && line.charAt(i + 1) == ' ' && isLowerLetter(line.charAt(i + 2))) {
+                int end = i + 3;
+                while (end < inStart && isWordChar(line.charAt(end))) end++;
+                if (end < inStart && line.charAt(end) == ' ') {
+                    resourceStart = i + 2;
+                    resourceEnd = end;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * URI form. URI is the last token without whitespaces before " in N", starts with '/' and follows not empty "[...] ".
+     * Greedy groups of pattern take the last "action=" followed by word chars.
+     */
+    private boolean findAction(CharSequence line, int contextEnd, int inStart) {
+        int uriEnd = inStart - 1;
+        if (line.charAt(uriEnd) != ' ') return false;
+
+        int uriStart = uriEnd;
+        while (uriStart > contextEnd && !isWhitespace(line.charAt(uriStart - 1))) uriStart--;
+        if (uriStart == uriEnd || uriStart - 6 < contextEnd || line.charAt(uriStart) != '/'
+                || line.charAt(uriStart - 1) != ' ' || line.charAt(uriStart - 2) != ']') {
+            return false;
+        }
+
+        for (int i = uriEnd - ACTION_PARAMETER.length() - 1; i > uriStart; i--) {
+            if (isActionParameter(line, i) && isWordChar(line.charAt(i + ACTION_PARAMETER.length()))) {
+                int start = i + ACTION_PARAMETER.length();
+                int end = start + 1;
+                while (isWordChar(line.charAt(end))) end++;
+                resourceStart = start;
+                resourceEnd = end;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isActionParameter(CharSequence line, int offset) {
+        for (int i = 0; i < ACTION_PARAMETER.length(); i++) {
+            if (line.charAt(offset + i) != ACTION_PARAMETER.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int readDuration(CharSequence line, int start, int end) {
+        if (end - start > MAX_SAFE_DURATION_DIGITS) {
+            return Integer.valueOf(line.subSequence(start, end).toString());
+        }
+        return TimestampDecoder.readNumber(line, start, end - start);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLowerLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isWordChar(char c) {
+        return isLowerLetter(c) || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
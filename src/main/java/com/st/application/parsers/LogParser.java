@@ -2,61 +2,165 @@ package com.st.application.parsers;
 
 
 import com.st.application.Parser;
+import com.st.application.infrastructure.LogFilter;
+import com.st.application.infrastructure.ResourceDictionary;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Log parser collect data from catched strings to Data class.
  * Catch URI with not empty: (LocalDateTime) [user context], 'resource name' or 'action' URI-parameter, and 'duration' as digital in the end of string.
+ * Resource name is interned by group bounds in ResourceDictionary, so equal names share one String and substring is not created for known name.
+ * Not thread-safe: use own instance for every thread.
  */
 public class LogParser implements Parser {
-    private final Pattern resourceLinePattern = Pattern.compile("^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3}) \\(.*\\) \\[.*\\] ([a-z][\\w]*) .*in ([\\d]+)$");
-    private final Pattern uriLinePattern = Pattern.compile("^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3}) \\(.*\\) \\[.+\\] \\/[\\S*]*action=(\\w+)[\\S]* in ([\\d]+)$");
-    private final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+    /**
+     * Pattern of resource line: date-time, resource name and duration groups.
+     */
+    public static final String RESOURCE_LINE_REGEX = "^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3}) \\(.*\\) \\[.*\\] ([a-z][\\w]*) .*in ([\\d]+)$";
+    /**
+     * Pattern of URI line with 'action' parameter: date-time, action and duration groups.
+     */
+    public static final String URI_LINE_REGEX = "^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3}) \\(.*\\) \\[.+\\] \\/[\\S*]*action=(\\w+)[\\S]* in ([\\d]+)$";
+
+    private static final String DATE_TIME_SHAPE = "dddd-dd-dd dd:dd:dd,ddd (";
+    private static final String ACTION_PARAMETER = "action=";
+    private static final int CANDIDATE_MIN_LENGTH = DATE_TIME_SHAPE.length() + 3;
+
+    private final Pattern resourceLinePattern = Pattern.compile(RESOURCE_LINE_REGEX);
+    private final Pattern uriLinePattern = Pattern.compile(URI_LINE_REGEX);
+    private final TimestampDecoder timestampDecoder = new TimestampDecoder();
+    private final LineCounters lineCounters = new LineCounters();
+    private final LogFilter filter;
+    private final ResourceDictionary resourceNames;
+    private final int maxResources;
+
+    public LogParser() {
+        this(LogFilter.ALL);
+    }
+
+    /**
+     * @param filter - lines out of time window or with skipped resources are counted as filtered, not matched by patterns
+     */
+    public LogParser(LogFilter filter) {
+        this(filter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param filter       - lines out of time window or with skipped resources are counted as filtered, not matched by patterns
+     * @param maxResources - count of reported resources (see LogAggregator) and of interned resource names
+     */
+    public LogParser(LogFilter filter, int maxResources) {
+        this.filter = filter;
+        this.resourceNames = new ResourceDictionary(maxResources);
+        this.maxResources = maxResources;
+    }
 
     /**
-     * Take dirty strings and collect validated by patterns to Data.
-     * Resource pattern: ^(\d{4}-\d{2}-\d{2} \d{2}:\d{2}:\d{2},\d{3}) \(.*\) \[.*\] ([a-z][\w]*) .*in ([\d]+)$
-     * URI pattern: ^(\d{4}-\d{2}-\d{2} \d{2}:\d{2}:\d{2},\d{3}) \(.*\) \[.+\] \/[\S*]*action=(\w+)[\S]* in ([\d]+)$
+     * Validate single dirty string by resource pattern, then by URI pattern.
+     * Line without date-time at the start or without "in N" at the end is rejected before patterns,
+     * URI pattern is tried only for line with 'action' parameter. Time window of filter is checked before patterns.
+     * Patterns are RESOURCE_LINE_REGEX and URI_LINE_REGEX.
      * Request with parameter 'action' like a REST-POST. Catch it.
      *
-     * @param logLineList - incoming dirty string list
-     * @return result list with filled Data
+     * @param line - incoming dirty string
+     * @return filled Data or null, if line not match to any pattern
      */
-    public List<Data> parse(List<String> logLineList) {
-        if (logLineList == null || logLineList.size() == 0) {
-            return Collections.emptyList();
+    public Data parseLine(String line) {
+        if (line == null || !isCandidate(line)) {
+            lineCounters.countRejectedLine();
+            return null;
+        }
+        if (filter.hasTimeBounds() && !filter.acceptsTime(line)) {
+            lineCounters.countFilteredLine();
+            return null;
         }
 
-        List<Data> logs = new ArrayList<>();
-        for (String line : logLineList) {
-            if (line == null) continue;
-            if (!addToLogs(resourceLinePattern.matcher(line), logs)) {
-                addToLogs(uriLinePattern.matcher(line), logs);
-            }
+        Matcher matcher = match(resourceLinePattern, line);
+        boolean uriForm = false;
+        if (matcher == null && line.contains(ACTION_PARAMETER)) {
+            matcher = match(uriLinePattern, line);
+            uriForm = true;
+        }
+        if (matcher == null) {
+            lineCounters.countRejectedLine();
+            return null;
+        }
+        // resource group is checked before interning, skipped names take no place in dictionary
+        if (!filter.acceptsResource(line, matcher.start(2), matcher.end(2))) {
+            lineCounters.countFilteredLine();
+            return null;
+        }
+        Data data = toData(matcher, line);
+        if (uriForm) {
+            lineCounters.countUriLine();
+        } else {
+            lineCounters.countResourceLine();
         }
+        return data;
+    }
+
+    @Override
+    public LineCounters getLineCounters() {
+        return lineCounters;
+    }
 
-        return logs;
+    @Override
+    public int getMaxResources() {
+        return maxResources;
     }
 
-    private boolean addToLogs(Matcher matcher, List<Data> logs) {
-        if (matcher.find()) {
-            String dateTime = matcher.group(1);
-            String resource = matcher.group(2);
-            String duration = matcher.group(3);
-            if (dateTime == null || dateTime.isEmpty()) return false;
-            if (resource == null || resource.isEmpty()) return false;
-            if (duration == null || duration.isEmpty()) return false;
-            logs.add(new Data(LocalDateTime.parse(dateTime, dateTimeFormat), resource, Integer.valueOf(duration)));
-            return true;
+    /**
+     * Cheap check of parts common for both patterns: date-time shape and " (" at the start, "in N" at the end.
+     * Line terminator at the end is skipped, as '$' of pattern does.
+     */
+    private static boolean isCandidate(String line) {
+        int end = line.length();
+        if (end > 0 && isLineTerminator(line.charAt(end - 1))) {
+            end -= end > 1 && line.charAt(end - 2) == '\r' && line.charAt(end - 1) == '\n' ? 2 : 1;
         }
+        int durationStart = end;
+        while (durationStart > 0 && isDigit(line.charAt(durationStart - 1))) durationStart--;
+        if (durationStart == end || durationStart < CANDIDATE_MIN_LENGTH
+                || line.charAt(durationStart - 3) != 'i' || line.charAt(durationStart - 2) != 'n' || line.charAt(durationStart - 1) != ' ') {
+            return false;
+        }
+        for (int i = 0; i < DATE_TIME_SHAPE.length(); i++) {
+            char shape = DATE_TIME_SHAPE.charAt(i);
+            if (shape == 'd' ? !isDigit(line.charAt(i)) : line.charAt(i) != shape) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 
-        return false;
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Date-time group starts the line, so it is decoded in line.
+     *
+     * @return matcher of valid line with decoded date-time, or null if line does not match pattern
+     */
+    private Matcher match(Pattern pattern, String line) {
+        Matcher matcher = pattern.matcher(line);
+        if (!matcher.find()) return null;
+        if (matcher.start(1) != 0 || matcher.end(1) != TimestampDecoder.LENGTH) return null;
+        if (matcher.start(2) == matcher.end(2)) return null;
+        if (matcher.start(3) == matcher.end(3)) return null;
+        if (!timestampDecoder.decode(line)) return null;
+        return matcher;
+    }
+
+    /**
+     * Resource group is interned by bounds.
+     */
+    private Data toData(Matcher matcher, String line) {
+        String resource = resourceNames.intern(line, matcher.start(2), matcher.end(2));
+        return new Data(timestampDecoder.getDateTime(line), resource, Integer.valueOf(matcher.group(3)));
     }
 }
@@ -0,0 +1,99 @@
+package com.st.application.parsers;
+
+import com.st.application.Parser;
+import com.st.application.infrastructure.LogFilter;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Log parser over memory-mapped file. Lines are found and tokenized directly in mapped bytes without charset decoding,
+ * String is created only for resource name seen first time. File is mapped by windows, so files larger than 2 GB are supported.
+ * Bytes are taken as ASCII: malformed UTF-8 is not reported, unlike in line readers.
+ * Empty lines are skipped, so they are not counted in line counters.
+ * Not thread-safe: use own instance for every thread.
+ */
+public class MappedLogParser extends FastLogParser implements Parser.RangeParser {
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final int windowSize;
+    private final AsciiLine line = new AsciiLine();
+
+    public MappedLogParser() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize - size of mapped window in bytes. Window is grown for lines longer than it
+     */
+    public MappedLogParser(int windowSize) {
+        this(windowSize, LogFilter.ALL, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param filter - lines out of time window or with skipped resources are counted as filtered, not parsed
+     */
+    public MappedLogParser(LogFilter filter) {
+        this(DEFAULT_WINDOW_SIZE, filter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param filter       - lines out of time window or with skipped resources are counted as filtered, not parsed
+     * @param maxResources - count of reported resources (see LogAggregator) and of interned resource names
+     */
+    public MappedLogParser(LogFilter filter, int maxResources) {
+        this(DEFAULT_WINDOW_SIZE, filter, maxResources);
+    }
+
+    /**
+     * @param windowSize   - size of mapped window in bytes. Window is grown for lines longer than it
+     * @param filter       - lines out of time window or with skipped resources are counted as filtered, not parsed
+     * @param maxResources - count of reported resources (see LogAggregator) and of interned resource names
+     */
+    public MappedLogParser(int windowSize, LogFilter filter, int maxResources) {
+        super(filter, maxResources);
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Parse range of file directly in mapped bytes. Line ends with '\n', '\r' or "\r\n", like in BufferedReader.
+     */
+    @Override
+    public void parse(FileChannel channel, long start, long end, RecordSink sink) throws IOException {
+        long windowStart = start;
+        int size = windowSize;
+        while (windowStart < end) {
+            long windowEnd = Math.min(end, windowStart + size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+            int limit = buffer.limit();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') {
+                    if (i > lineStart) {
+                        parseLine(line.wrap(buffer, lineStart, i), sink);
+                    }
+                    lineStart = i + 1;
+                }
+            }
+
+            if (windowEnd == end) {
+                if (lineStart < limit) {
+                    parseLine(line.wrap(buffer, lineStart, limit), sink);
+                }
+                return;
+            }
+
+            if (lineStart == 0) {
+                if (size == Integer.MAX_VALUE) {
+                    throw new IOException("Line is longer than " + Integer.MAX_VALUE + " bytes at position " + windowStart);
+                }
+                size = (int) Math.min(Integer.MAX_VALUE, size * 2L);
+            } else {
+                windowStart += lineStart;
+                size = windowSize;
+            }
+        }
+    }
+}
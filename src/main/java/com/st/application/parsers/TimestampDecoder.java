@@ -0,0 +1,125 @@
+package com.st.application.parsers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Decoder of log date-time "yyyy-MM-dd HH:mm:ss,SSS" at the start of line.
+ * Consecutive lines usually share date and hour, so the last "yyyy-MM-dd HH" prefix is cached with its date and epoch millis,
+ * and for next lines with the same prefix only minutes, seconds and millis are read.
+ * Values out of usual ranges (like 30th of February) are resolved by formatter, so result is the same as LocalDateTime.parse.
+ * Not thread-safe: keep state of last decoded date-time.
+ */
+public class TimestampDecoder {
+    public static final int LENGTH = 23;
+    private static final int PREFIX_LENGTH = 13;
+    private static final long MILLIS_IN_HOUR = 3_600_000;
+
+    private final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+    private final char[] prefix = new char[PREFIX_LENGTH];
+    private boolean hasPrefix;
+    private boolean usualPrefix;
+    private LocalDate date;
+    private int hour;
+    private long hourMillis;
+
+    private int minute;
+    private int second;
+    private int millis;
+
+    /**
+     * Read date-time fields. Line should have at least LENGTH chars.
+     *
+     * @param line - line starts with date-time
+     * @return true, if date-time has digits and separators of format. Values are available by getters until next call.
+     */
+    public boolean decode(CharSequence line) {
+        if (!isCachedPrefix(line) && !readPrefix(line)) return false;
+        if (line.charAt(13) != ':' || line.charAt(16) != ':' || line.charAt(19) != ',') return false;
+        minute = readNumber(line, 14, 2);
+        second = readNumber(line, 17, 2);
+        millis = readNumber(line, 20, 3);
+        return (minute | second | millis) >= 0;
+    }
+
+    /**
+     * @param line - the same line as in last decode, used only for unusual values
+     * @return date-time of last decoded line as milliseconds from 1970-01-01T00:00, equal to Data.getRequestTimeMillis
+     */
+    public long getMillis(CharSequence line) {
+        if (isUsual()) {
+            return hourMillis + minute * 60_000L + second * 1000L + millis;
+        }
+        LocalDateTime requestTime = parse(line);
+        return requestTime.toEpochSecond(ZoneOffset.UTC) * 1000 + requestTime.getNano() / 1_000_000;
+    }
+
+    /**
+     * @param line - the same line as in last decode, used only for unusual values
+     * @return date-time of last decoded line, equal to LocalDateTime.parse of date-time part
+     */
+    public LocalDateTime getDateTime(CharSequence line) {
+        if (isUsual()) {
+            return LocalDateTime.of(date, LocalTime.of(hour, minute, second, millis * 1_000_000));
+        }
+        return parse(line);
+    }
+
+    private boolean isUsual() {
+        return usualPrefix && minute <= 59 && second <= 59;
+    }
+
+    private LocalDateTime parse(CharSequence line) {
+        return LocalDateTime.parse(line.subSequence(0, LENGTH), dateTimeFormat);
+    }
+
+    private boolean isCachedPrefix(CharSequence line) {
+        if (!hasPrefix) return false;
+        for (int i = PREFIX_LENGTH - 1; i >= 0; i--) {
+            if (line.charAt(i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean readPrefix(CharSequence line) {
+        if (line.charAt(4) != '-' || line.charAt(7) != '-' || line.charAt(10) != ' ') return false;
+        int year = readNumber(line, 0, 4);
+        int month = readNumber(line, 5, 2);
+        int day = readNumber(line, 8, 2);
+        hour = readNumber(line, 11, 2);
+        if ((year | month | day | hour) < 0) {
+            hasPrefix = false;
+            return false;
+        }
+
+        usualPrefix = year > 0 && month >= 1 && month <= 12 && day >= 1 && hour <= 23
+                && day <= Month.of(month).length(Year.isLeap(year));
+        if (usualPrefix) {
+            date = LocalDate.of(year, month, day);
+            hourMillis = (date.toEpochDay() * 24 + hour) * MILLIS_IN_HOUR;
+        }
+        for (int i = 0; i < PREFIX_LENGTH; i++) {
+            prefix[i] = line.charAt(i);
+        }
+        hasPrefix = true;
+        return true;
+    }
+
+    /**
+     * @return number of fixed length or -1, if not all chars are digits
+     */
+    static int readNumber(CharSequence line, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
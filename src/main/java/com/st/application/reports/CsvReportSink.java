@@ -0,0 +1,147 @@
+package com.st.application.reports;
+
+import com.st.application.Parser;
+import com.st.application.ReportSink;
+import com.st.application.infrastructure.DurationHistogram;
+import com.st.application.infrastructure.HourlyDurations;
+import com.st.application.infrastructure.LogPipeline;
+import com.st.application.infrastructure.ResourceDictionary;
+import com.st.application.infrastructure.ResourceRanking;
+import com.st.application.infrastructure.RunStatistics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Report as CSV (RFC 4180) with header once per output. Resources and hours go in one table, distinguished by first column:
+ * resource,rank,name,statistic,value,count,p50,p90,p99,max
+ * other,,(other),statistic,value,count,p50,p90,p99,max
+ * other,,(other),maxResourcesByNameHash,value,,,,,
+ * hour,,2015-08-19T01:00,durationSum,value,,,,,
+ * statistic,,parse,wallNanos,value,,,,,
+ * statistic,,pipeline read,busyNanos,value,,,,,
+ * Rows 'other' are written only for aggregate with requests of resources beyond limit, they are not ranked.
+ * Kept resources are chosen by hash of name, not by duration.
+ */
+public class CsvReportSink implements ReportSink {
+    private static final String HEADER = "section,rank,name,statistic,value,count,p50,p90,p99,max\n";
+
+    private final Writer out;
+    private boolean hasHeader;
+
+    /**
+     * @param out - destination, should be buffered. It is flushed at the end of every report, but not closed
+     */
+    public CsvReportSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(long recordCount) throws IOException {
+        if (!hasHeader) {
+            out.write(HEADER);
+            hasHeader = true;
+        }
+    }
+
+    @Override
+    public void writeResources(ResourceRanking resources) throws IOException {
+        for (int rank = 0; rank < resources.size(); rank++) {
+            DurationHistogram histogram = resources.getHistogram(rank);
+            out.write("resource," + (rank + 1) + ",");
+            writeField(resources.getName(rank));
+            out.write(',');
+            writeField(resources.getStatistic());
+            out.write("," + resources.getValue(rank) + "," + resources.getCount(rank)
+                    + "," + histogram.getValueAtPercentile(50) + "," + histogram.getValueAtPercentile(90)
+                    + "," + histogram.getValueAtPercentile(99) + "," + histogram.getMax() + "\n");
+        }
+        if (resources.hasOther()) {
+            DurationHistogram histogram = resources.getOtherHistogram();
+            out.write("other,,");
+            writeField(ResourceDictionary.OTHER);
+            out.write(',');
+            writeField(resources.getStatistic());
+            out.write("," + resources.getOtherValue() + "," + resources.getOtherCount()
+                    + "," + histogram.getValueAtPercentile(50) + "," + histogram.getValueAtPercentile(90)
+                    + "," + histogram.getValueAtPercentile(99) + "," + histogram.getMax() + "\n");
+            out.write("other,,");
+            writeField(ResourceDictionary.OTHER);
+            out.write(",maxResourcesByNameHash," + resources.getMaxResources() + ",,,,,\n");
+        }
+    }
+
+    @Override
+    public void writeHours(HourlyDurations hours) throws IOException {
+        for (int i = 0; i < hours.size(); i++) {
+            out.write("hour,," + hours.getDateTime(i) + ",durationSum," + hours.getDurationSum(i) + ",,,,,\n");
+        }
+    }
+
+    @Override
+    public void writeStatistics(RunStatistics statistics) throws IOException {
+        for (RunStatistics.Phase phase : statistics.getPhases()) {
+            writeStatistic(phase.getName(), "wallNanos", phase.getWallNanos());
+            writeStatistic(phase.getName(), "cpuNanos", phase.getCpuNanos());
+            writeStatistic(phase.getName(), "allocatedBytes", phase.getAllocatedBytes());
+            writeStatistic(phase.getName(), "gcCount", phase.getGcCount());
+            writeStatistic(phase.getName(), "gcMillis", phase.getGcMillis());
+        }
+        for (LogPipeline.Stage stage : statistics.getPipelineStages()) {
+            String name = "pipeline " + stage.getName();
+            writeStatistic(name, stage.getUnit(), stage.getItems());
+            writeStatistic(name, stage.getUnit() + "PerSecond", Math.round(stage.getThroughput()));
+            writeStatistic(name, "busyNanos", stage.getBusyNanos());
+            writeStatistic(name, "waitNanos", stage.getWaitNanos());
+            writeStatistic(name, "batches", stage.getBatches());
+            writeStatistic(name, "averageQueueDepth", stage.getAverageQueueDepth());
+            writeStatistic(name, "maxQueueDepth", stage.getMaxQueueDepth());
+        }
+        Parser.LineCounters lines = statistics.getLineCounters();
+        writeStatistic("input", "bytes", statistics.getInputBytes());
+        writeStatistic("input", "bytesPerSecond", Math.round(statistics.getBytesPerSecond()));
+        writeStatistic("input", "linesPerSecond", Math.round(statistics.getLinesPerSecond()));
+        writeStatistic("input", "resourceLines", lines.getResourceLines());
+        writeStatistic("input", "uriLines", lines.getUriLines());
+        writeStatistic("input", "rejectedLines", lines.getRejectedLines());
+        writeStatistic("input", "filteredLines", lines.getFilteredLines());
+        writeStatistic("input", "indexedRecords", lines.getIndexedRecords());
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.flush();
+    }
+
+    private void writeStatistic(String name, String statistic, long value) throws IOException {
+        writeStatistic(name, statistic, Long.toString(value));
+    }
+
+    private void writeStatistic(String name, String statistic, double value) throws IOException {
+        writeStatistic(name, statistic, Double.toString(value));
+    }
+
+    private void writeStatistic(String name, String statistic, String value) throws IOException {
+        out.write("statistic,,");
+        writeField(name);
+        out.write("," + statistic + "," + value + ",,,,,\n");
+    }
+
+    /**
+     * Field with comma, quote or line break is quoted, quotes are doubled.
+     */
+    private void writeField(String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,135 @@
+package com.st.application.reports;
+
+import com.st.application.Parser;
+import com.st.application.ReportSink;
+import com.st.application.infrastructure.DurationHistogram;
+import com.st.application.infrastructure.HourlyDurations;
+import com.st.application.infrastructure.LogPipeline;
+import com.st.application.infrastructure.ResourceDictionary;
+import com.st.application.infrastructure.ResourceRanking;
+import com.st.application.infrastructure.RunStatistics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Report as one JSON object per line (JSON Lines), so reports of follow mode can be read one by one:
+ * {"requests":N,"rankBy":"average","resources":[{"rank":1,"name":"...","value":...,"count":...,"p50":...,"p90":...,"p99":...,"max":...}],
+ * "other":{"name":"(other)","maxResources":...,"keptBy":"nameHash","value":...,"count":...,"p50":...,"p90":...,"p99":...,"max":...},
+ * "hours":[{"hour":"2015-08-19T01:00","durationSum":...}],
+ * "statistics":{"phases":[{"name":"parse","wallNanos":...,"cpuNanos":...,"allocatedBytes":...,"gcCount":...,"gcMillis":...}],
+ * "pipeline":[{"name":"read","unit":"bytes","items":...,"itemsPerSecond":...,"busyNanos":...,"waitNanos":...,"batches":...,
+ * "averageQueueDepth":...,"maxQueueDepth":...}],
+ * "inputBytes":...,"bytesPerSecond":...,"linesPerSecond":...,"resourceLines":...,"uriLines":...,"rejectedLines":...,"filteredLines":...,
+ * "indexedRecords":...}}
+ * "other" is written only for aggregate with requests of resources beyond limit, they are not ranked.
+ * Kept resources are chosen by hash of name, not by duration.
+ * Hour is local date-time of hour start, requests are counted in the next hour, like in text report.
+ */
+public class JsonReportSink implements ReportSink {
+    private final Writer out;
+
+    /**
+     * @param out - destination, should be buffered. It is flushed at the end of every report, but not closed
+     */
+    public JsonReportSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(long recordCount) throws IOException {
+        out.write("{\"requests\":" + recordCount);
+    }
+
+    @Override
+    public void writeResources(ResourceRanking resources) throws IOException {
+        out.write(",\"rankBy\":");
+        writeString(resources.getStatistic());
+        out.write(",\"resources\":[");
+        for (int rank = 0; rank < resources.size(); rank++) {
+            DurationHistogram histogram = resources.getHistogram(rank);
+            out.write(rank == 0 ? "{\"rank\":" : ",{\"rank\":");
+            out.write(Integer.toString(rank + 1));
+            out.write(",\"name\":");
+            writeString(resources.getName(rank));
+            out.write(",\"value\":" + resources.getValue(rank) + ",\"count\":" + resources.getCount(rank)
+                    + ",\"p50\":" + histogram.getValueAtPercentile(50) + ",\"p90\":" + histogram.getValueAtPercentile(90)
+                    + ",\"p99\":" + histogram.getValueAtPercentile(99) + ",\"max\":" + histogram.getMax() + "}");
+        }
+        out.write(']');
+        if (resources.hasOther()) {
+            DurationHistogram histogram = resources.getOtherHistogram();
+            out.write(",\"other\":{\"name\":");
+            writeString(ResourceDictionary.OTHER);
+            out.write(",\"maxResources\":" + resources.getMaxResources() + ",\"keptBy\":\"nameHash\""
+                    + ",\"value\":" + resources.getOtherValue() + ",\"count\":" + resources.getOtherCount()
+                    + ",\"p50\":" + histogram.getValueAtPercentile(50) + ",\"p90\":" + histogram.getValueAtPercentile(90)
+                    + ",\"p99\":" + histogram.getValueAtPercentile(99) + ",\"max\":" + histogram.getMax() + "}");
+        }
+    }
+
+    @Override
+    public void writeHours(HourlyDurations hours) throws IOException {
+        out.write(",\"hours\":[");
+        for (int i = 0; i < hours.size(); i++) {
+            out.write(i == 0 ? "{\"hour\":\"" : ",{\"hour\":\"");
+            out.write(hours.getDateTime(i).toString());
+            out.write("\",\"durationSum\":" + hours.getDurationSum(i) + "}");
+        }
+        out.write(']');
+    }
+
+    @Override
+    public void writeStatistics(RunStatistics statistics) throws IOException {
+        out.write(",\"statistics\":{\"phases\":[");
+        boolean first = true;
+        for (RunStatistics.Phase phase : statistics.getPhases()) {
+            out.write(first ? "{\"name\":" : ",{\"name\":");
+            first = false;
+            writeString(phase.getName());
+            out.write(",\"wallNanos\":" + phase.getWallNanos() + ",\"cpuNanos\":" + phase.getCpuNanos()
+                    + ",\"allocatedBytes\":" + phase.getAllocatedBytes() + ",\"gcCount\":" + phase.getGcCount()
+                    + ",\"gcMillis\":" + phase.getGcMillis() + "}");
+        }
+        out.write("],\"pipeline\":[");
+        first = true;
+        for (LogPipeline.Stage stage : statistics.getPipelineStages()) {
+            out.write(first ? "{\"name\":" : ",{\"name\":");
+            first = false;
+            writeString(stage.getName());
+            out.write(",\"unit\":");
+            writeString(stage.getUnit());
+            out.write(",\"items\":" + stage.getItems() + ",\"itemsPerSecond\":" + Math.round(stage.getThroughput())
+                    + ",\"busyNanos\":" + stage.getBusyNanos() + ",\"waitNanos\":" + stage.getWaitNanos()
+                    + ",\"batches\":" + stage.getBatches() + ",\"averageQueueDepth\":" + stage.getAverageQueueDepth()
+                    + ",\"maxQueueDepth\":" + stage.getMaxQueueDepth() + "}");
+        }
+        Parser.LineCounters lines = statistics.getLineCounters();
+        out.write("],\"inputBytes\":" + statistics.getInputBytes() + ",\"bytesPerSecond\":" + Math.round(statistics.getBytesPerSecond())
+                + ",\"linesPerSecond\":" + Math.round(statistics.getLinesPerSecond()) + ",\"resourceLines\":" + lines.getResourceLines()
+                + ",\"uriLines\":" + lines.getUriLines() + ",\"rejectedLines\":" + lines.getRejectedLines()
+                + ",\"filteredLines\":" + lines.getFilteredLines() + ",\"indexedRecords\":" + lines.getIndexedRecords() + "}");
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.write("}\n");
+        out.flush();
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
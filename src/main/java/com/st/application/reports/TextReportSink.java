@@ -0,0 +1,127 @@
+package com.st.application.reports;
+
+import com.st.application.ReportSink;
+import com.st.application.infrastructure.DurationHistogram;
+import com.st.application.infrastructure.HourlyDurations;
+import com.st.application.infrastructure.LogPipeline;
+import com.st.application.infrastructure.ResourceDictionary;
+import com.st.application.infrastructure.ResourceRanking;
+import com.st.application.infrastructure.RunStatistics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Human readable report: numbered list of top resources, their percentiles and histogram of hourly duration with '*' per percent.
+ * Requests of resources beyond limit of aggregate are written after the list, not ranked.
+ */
+public class TextReportSink implements ReportSink {
+    private static final double[] PERCENTILES = {50, 90, 99};
+    private static final int HISTOGRAM_WIDTH = 100;
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final Writer out;
+    private final DateTimeFormatter printTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd: HH");
+    private boolean hasSection;
+
+    /**
+     * @param out - destination, should be buffered. It is flushed at the end of every report, but not closed
+     */
+    public TextReportSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(long recordCount) {
+        hasSection = false;
+    }
+
+    @Override
+    public void writeResources(ResourceRanking resources) throws IOException {
+        startSection();
+        out.write("Resources with highest " + resources.getStatistic() + " request duration: \n");
+        for (int rank = 0; rank < resources.size(); rank++) {
+            out.write("    " + (rank + 1) + ") " + resources.getName(rank) + " = " + resources.getValue(rank) + "\n");
+        }
+
+        out.write("\nRequest duration percentiles of these resources (p50 / p90 / p99 / max):\n");
+        for (int rank = 0; rank < resources.size(); rank++) {
+            DurationHistogram histogram = resources.getHistogram(rank);
+            out.write("    " + (rank + 1) + ") " + resources.getName(rank) + " = ");
+            for (double percentile : PERCENTILES) {
+                out.write(histogram.getValueAtPercentile(percentile) + " / ");
+            }
+            out.write(histogram.getMax() + "\n");
+        }
+
+        if (resources.hasOther()) {
+            DurationHistogram histogram = resources.getOtherHistogram();
+            out.write("\nNot ranked requests of resources beyond limit of " + resources.getMaxResources()
+                    + " (kept resources are chosen by hash of name, not by duration):\n");
+            out.write("    " + ResourceDictionary.OTHER + " = " + resources.getStatistic() + " " + resources.getOtherValue()
+                    + ", " + resources.getOtherCount() + " requests, p50 / p90 / p99 / max = ");
+            for (double percentile : PERCENTILES) {
+                out.write(histogram.getValueAtPercentile(percentile) + " / ");
+            }
+            out.write(histogram.getMax() + "\n");
+        }
+    }
+
+    @Override
+    public void writeHours(HourlyDurations hours) throws IOException {
+        startSection();
+        out.write("Draw histogram of hourly number of requests:\n");
+        out.write("    0-100(step 1%) => ");
+        writeBar(HISTOGRAM_WIDTH);
+        long max = hours.getMaxDurationSum();
+        for (int i = 0; i < hours.size(); i++) {
+            out.write("    " + hours.getDateTime(i).format(printTimeFormat) + " => ");
+            writeBar(max == 0 ? 0 : (int) (hours.getDurationSum(i) * HISTOGRAM_WIDTH / max));
+        }
+    }
+
+    @Override
+    public void writeStatistics(RunStatistics statistics) throws IOException {
+        startSection();
+        out.write("Run statistics:\n");
+        for (RunStatistics.Phase phase : statistics.getPhases()) {
+            out.write("    " + phase.getName() + ": wall " + toMillis(phase.getWallNanos()) + " ms, cpu " + toMillis(phase.getCpuNanos())
+                    + " ms, allocated " + toMegabytes(phase.getAllocatedBytes()) + " MB, gc " + phase.getGcCount() + " collections / "
+                    + phase.getGcMillis() + " ms\n");
+        }
+        for (LogPipeline.Stage stage : statistics.getPipelineStages()) {
+            out.write("    pipeline " + stage + "\n");
+        }
+        out.write("    input: " + toMegabytes(statistics.getInputBytes()) + " MB, "
+                + String.format("%.1f", statistics.getBytesPerSecond() / MEGABYTE) + " MB/s\n");
+        out.write("    lines: " + statistics.getLineCounters() + ", " + Math.round(statistics.getLinesPerSecond()) + " lines/s\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.flush();
+    }
+
+    private void startSection() throws IOException {
+        if (hasSection) {
+            out.write('\n');
+        }
+        hasSection = true;
+    }
+
+    private static String toMillis(long nanos) {
+        return nanos < 0 ? "n/a" : Long.toString(nanos / 1_000_000);
+    }
+
+    private static String toMegabytes(long bytes) {
+        return bytes < 0 ? "n/a" : String.format("%.1f", (double) bytes / MEGABYTE);
+    }
+
+    private void writeBar(int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.write('*');
+        }
+        out.write('\n');
+    }
+}
@@ -0,0 +1,72 @@
+package com.st.application;
+
+import com.st.application.infrastructure.AggregateSnapshot;
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.LogProcessor;
+import com.st.application.parsers.FastLogParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class AggregateSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumeFromSnapshotTest() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        append(file, lines(0, 100) + "2015-08-19 10:06:42,375 (http) [] notFinished 1 in");
+
+        LogAggregator first = AggregateSnapshot.process(file, FastLogParser::new, 1);
+        Assert.assertTrue(Files.exists(AggregateSnapshot.snapshotPath(file)));
+        assertSame(LogProcessor.process(file, FastLogParser::new, 1), first);
+
+        append(file, " 5\n" + lines(100, 150));
+        LogAggregator second = AggregateSnapshot.process(file, FastLogParser::new, 2);
+        Assert.assertEquals(151, second.getRecordCount());
+        assertSame(LogProcessor.process(file, FastLogParser::new, 1), second);
+
+        LogAggregator unchanged = AggregateSnapshot.process(file, FastLogParser::new, 1);
+        assertSame(second, unchanged);
+    }
+
+    @Test
+    public void changedFileTest() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        append(file, lines(0, 100));
+        AggregateSnapshot.process(file, FastLogParser::new, 1);
+
+        Files.write(file, lines(5, 20).getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+        LogAggregator aggregator = AggregateSnapshot.process(file, FastLogParser::new, 1);
+        Assert.assertEquals(15, aggregator.getRecordCount());
+        assertSame(LogProcessor.process(file, FastLogParser::new, 1), aggregator);
+
+        Files.write(AggregateSnapshot.snapshotPath(file), new byte[]{1, 2, 3});
+        Assert.assertEquals(15, AggregateSnapshot.process(file, FastLogParser::new, 1).getRecordCount());
+    }
+
+    private static void assertSame(LogAggregator expected, LogAggregator actual) {
+        Assert.assertEquals(expected.getRecordCount(), actual.getRecordCount());
+        Assert.assertEquals(expected.getAvgDurationByResource(null), actual.getAvgDurationByResource(null));
+        Assert.assertEquals(expected.getDurationSumByHour(), actual.getDurationSumByHour());
+    }
+
+    private static String lines(int from, int to) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            lines.append(String.format("2015-08-19 %02d:06:42,375 (http--0.0.0.0-28080-370) [] resource%d 300109921258 in %d\n", i % 24, i % 7, i));
+        }
+        return lines.toString();
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
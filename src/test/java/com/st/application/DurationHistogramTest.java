@@ -0,0 +1,69 @@
+package com.st.application;
+
+import com.st.application.infrastructure.DurationHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+public class DurationHistogramTest {
+
+    @Test
+    public void durationHistogramTest() throws IOException {
+        Random random = new Random(5);
+        DurationHistogram first = new DurationHistogram();
+        DurationHistogram second = new DurationHistogram();
+        long[] durations = new long[100_000];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = i % 7 == 0 ? random.nextInt(40) : (long) Math.exp(random.nextDouble() * 25);
+            (i % 2 == 0 ? first : second).add(durations[i]);
+        }
+        first.merge(second);
+        Arrays.sort(durations);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        first.writeTo(new DataOutputStream(bytes));
+        DurationHistogram histogram = DurationHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(durations.length, histogram.getCount());
+        Assert.assertEquals(durations[durations.length - 1], histogram.getMax());
+        Assert.assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+        for (double percentile : new double[]{0, 1, 10, 50, 90, 99, 99.9}) {
+            long exact = durations[Math.max(0, (int) Math.ceil(percentile / 100 * durations.length) - 1)];
+            long estimated = histogram.getValueAtPercentile(percentile);
+            Assert.assertTrue(percentile + ": " + estimated + " vs " + exact, estimated >= exact && estimated <= exact + exact / 32);
+        }
+    }
+
+    @Test
+    public void durationHistogramMergeRangesTest() {
+        // histograms cover only own ranges of buckets, merge in any order gives the same result
+        long[][] ranges = {{0, 10}, {1500, 1600}, {100_000, 100_100}, {40, 50}, {5_000_000_000L, 5_000_000_001L}};
+        DurationHistogram expected = new DurationHistogram();
+        DurationHistogram merged = new DurationHistogram();
+        for (long[] range : ranges) {
+            DurationHistogram part = new DurationHistogram();
+            for (long duration = range[0]; duration <= range[1]; duration++) {
+                expected.add(duration);
+                part.add(duration);
+            }
+            merged.merge(part);
+            merged.merge(new DurationHistogram());
+        }
+
+        Assert.assertEquals(expected.getCount(), merged.getCount());
+        Assert.assertEquals(5_000_000_001L, merged.getMax());
+        for (double percentile = 0; percentile <= 100; percentile += 0.5) {
+            Assert.assertEquals(String.valueOf(percentile), expected.getValueAtPercentile(percentile), merged.getValueAtPercentile(percentile));
+        }
+        // 226 values: 11th is 10, 22nd is 50
+        Assert.assertEquals(10, merged.getValueAtPercentile(4.8));
+        Assert.assertEquals(50, merged.getValueAtPercentile(9.7));
+    }
+}
@@ -0,0 +1,37 @@
+package com.st.application;
+
+import java.util.Random;
+
+/**
+ * Source of fuzzed log lines: random sample with up to 3 random deletions or insertions of alphabet chars.
+ * Sequence is repeatable for the same seed.
+ */
+class LineMutator {
+    private final String[] samples;
+    private final String alphabet;
+    private final Random random;
+
+    /**
+     * @param samples  - valid lines to mutate
+     * @param alphabet - chars to insert
+     * @param seed     - seed of random sequence
+     */
+    LineMutator(String[] samples, String alphabet, long seed) {
+        this.samples = samples;
+        this.alphabet = alphabet;
+        this.random = new Random(seed);
+    }
+
+    String next() {
+        StringBuilder line = new StringBuilder(samples[random.nextInt(samples.length)]);
+        for (int mutation = random.nextInt(4); mutation > 0; mutation--) {
+            int position = random.nextInt(line.length());
+            if (random.nextBoolean()) {
+                line.deleteCharAt(position);
+            } else {
+                line.insert(position, alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package com.st.application;
+
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.LogFilter;
+import com.st.application.infrastructure.ResourceDictionary;
+import com.st.application.infrastructure.ResourceRanking;
+import com.st.application.parsers.FastLogParser;
+import com.st.application.parsers.LogParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class LogAggregatorTest {
+
+    @Test
+    public void parserResourceCapTest() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lines.add(String.format("2015-08-19 00:06:42,375 (http) [] resource%d 300109921258 in %d", i % 10, i));
+            lines.add(String.format("2015-08-19 %02d:06:42,375 (http) [USER:1] /main.do?action=random%d in %d", i % 24, i, i));
+        }
+        for (Parser parser : new Parser[]{new LogParser(LogFilter.ALL, 15), new FastLogParser(LogFilter.ALL, 15)}) {
+            LogAggregator aggregator = new LogAggregator(parser.getMaxResources());
+            List<Parser.Data> data = parser.parse(lines);
+            data.forEach(aggregator);
+            Assert.assertSame(data.get(0).getResourceName(), data.get(20).getResourceName());
+            Assert.assertEquals(200, aggregator.getRecordCount());
+            Assert.assertTrue(aggregator.hasOtherResources());
+            ResourceRanking ranking = aggregator.rankResources(null, null);
+            Assert.assertEquals(15, ranking.size());
+            Assert.assertTrue(ranking.hasOther());
+            Assert.assertEquals(15, ranking.getMaxResources());
+            long count = ranking.getOtherCount();
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Assert.assertNotEquals(ResourceDictionary.OTHER, ranking.getName(rank));
+                count += ranking.getCount(rank);
+            }
+            Assert.assertEquals(200, count);
+
+            // kept resources do not depend on order of records and on parts of log
+            for (int parts : new int[]{1, 3, 7}) {
+                LogAggregator merged = new LogAggregator();
+                for (int part = parts - 1; part >= 0; part--) {
+                    LogAggregator partial = new LogAggregator(15);
+                    List<Parser.Data> partData = new ArrayList<>(data.subList(data.size() * part / parts, data.size() * (part + 1) / parts));
+                    Collections.reverse(partData);
+                    partData.forEach(partial);
+                    merged.merge(partial);
+                }
+                Assert.assertTrue(merged.hasOtherResources());
+                Assert.assertEquals(aggregator.getAvgDurationByResource(null), merged.getAvgDurationByResource(null));
+                Assert.assertEquals(aggregator.getPercentileDurationByResource(90, null), merged.getPercentileDurationByResource(90, null));
+                Assert.assertEquals(aggregator.getDurationSumByHour(), merged.getDurationSumByHour());
+            }
+        }
+        LogAggregator aggregator = new LogAggregator();
+        new FastLogParser().parse(lines).forEach(aggregator);
+        Assert.assertFalse(aggregator.hasOtherResources());
+        Assert.assertEquals(110, aggregator.getAvgDurationByResource(null).size());
+    }
+
+    @Test
+    public void parserFilterWithResourceCapTest() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lines.add(String.format("2015-08-19 00:06:42,375 (http) [] noise%d 300109921258 in %d", i, 100 + i));
+        }
+        lines.add("2015-08-19 00:06:43,375 (http) [] wanted 300109921258 in 10");
+        lines.add("2015-08-19 00:06:44,375 (http) [] excludedOne 300109921258 in 28");
+        lines.add("2015-08-19 00:06:45,375 (http) [USER:1] /main.do?action=wanted in 20");
+        lines.add("2015-08-19 00:06:46,375 (http) [USER:1] /main.do?action=excludedOne in 29");
+
+        LogFilter include = new LogFilter(null, null, Collections.singletonList("wanted"), null);
+        LogFilter exclude = new LogFilter(null, null, null, Collections.singletonList("excludedOne"));
+        for (Parser parser : new Parser[]{new LogParser(include, 3), new FastLogParser(include, 3)}) {
+            LogAggregator aggregator = new LogAggregator(parser.getMaxResources());
+            parser.parse(lines).forEach(aggregator);
+            Assert.assertEquals(Collections.singletonMap("wanted", 15.0), aggregator.getAvgDurationByResource(null));
+            Assert.assertEquals(7, parser.getLineCounters().getFilteredLines());
+        }
+        for (Parser parser : new Parser[]{new LogParser(exclude, 3), new FastLogParser(exclude, 3)}) {
+            LogAggregator aggregator = new LogAggregator(parser.getMaxResources());
+            parser.parse(lines).forEach(aggregator);
+            Assert.assertEquals(7, aggregator.getRecordCount());
+            Assert.assertEquals(2, parser.getLineCounters().getFilteredLines());
+            Map<String, Double> avgDuration = aggregator.getAvgDurationByResource(null);
+            Assert.assertEquals(3, avgDuration.size());
+            Assert.assertFalse(avgDuration.containsKey("excludedOne"));
+            Assert.assertFalse(avgDuration.containsKey(ResourceDictionary.OTHER));
+            ResourceRanking ranking = aggregator.rankResources(null, null);
+            long sum = Math.round(ranking.getOtherValue() * ranking.getOtherCount());
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                sum += Math.round(ranking.getValue(rank) * ranking.getCount(rank));
+            }
+            Assert.assertEquals(100 + 101 + 102 + 103 + 104 + 10 + 20, sum);
+        }
+    }
+
+    @Test
+    public void otherNotRankedTest() {
+        LogAggregator aggregator = new LogAggregator(2);
+        for (int i = 0; i < 10; i++) {
+            aggregator.accept(0, "resource" + i, i < 2 ? 1 : 1000);
+        }
+        Assert.assertTrue(aggregator.hasOtherResources());
+
+        for (Double percentile : new Double[]{null, 99.0}) {
+            ResourceRanking ranking = aggregator.rankResources(percentile, 1);
+            Assert.assertEquals(1, ranking.size());
+            Assert.assertNotEquals(ResourceDictionary.OTHER, ranking.getName(0));
+            Assert.assertTrue(ranking.hasOther());
+            Assert.assertEquals(8, ranking.getOtherCount());
+            Assert.assertEquals(8, ranking.getOtherHistogram().getCount());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.st.application;
+
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.LogFollower;
+import com.st.application.parsers.FastLogParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class LogFollowerTest {
+    private static final String LINE = "2015-08-19 00:06:42,375 (http--0.0.0.0-28080-370) [] updateSubscriptionFromBackend 300109921258 in 243\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendedLinesTest() throws IOException {
+        Path file = folder.newFile().toPath();
+        LogAggregator aggregator = new LogAggregator();
+        LogFollower follower = new LogFollower(file, new FastLogParser(), aggregator);
+        try {
+            append(file, LINE + LINE);
+            Assert.assertTrue(follower.refresh() > 0);
+            Assert.assertEquals(2, aggregator.getRecordCount());
+            Assert.assertEquals(0, follower.refresh());
+
+            append(file, LINE.substring(0, 40));
+            Assert.assertEquals(0, follower.refresh());
+            Assert.assertEquals(2, aggregator.getRecordCount());
+
+            append(file, LINE.substring(40) + LINE);
+            follower.refresh();
+            Assert.assertEquals(4, aggregator.getRecordCount());
+        } finally {
+            follower.close();
+        }
+    }
+
+    @Test
+    public void truncateAndRotateTest() throws IOException {
+        Path file = folder.newFile().toPath();
+        LogAggregator aggregator = new LogAggregator();
+        LogFollower follower = new LogFollower(file, new FastLogParser(), aggregator);
+        try {
+            append(file, LINE + LINE + LINE);
+            follower.refresh();
+            Assert.assertEquals(3, aggregator.getRecordCount());
+
+            Files.write(file, LINE.getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+            follower.refresh();
+            Assert.assertEquals(4, aggregator.getRecordCount());
+
+            append(file, LINE.trim());
+            Files.move(file, file.resolveSibling("rotated.log"));
+            append(file, LINE);
+            follower.refresh();
+            Assert.assertEquals(6, aggregator.getRecordCount());
+        } finally {
+            follower.close();
+        }
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
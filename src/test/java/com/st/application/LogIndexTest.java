@@ -0,0 +1,145 @@
+package com.st.application;
+
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.LogFilter;
+import com.st.application.infrastructure.LogIndex;
+import com.st.application.infrastructure.LogProcessor;
+import com.st.application.parsers.FastLogParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class LogIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void queryByIndexTest() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        append(file, lines(0, 3000) + "2015-08-19 10:06:42,375 (http) [] notFinished 1 in");
+        LogIndex.update(file, FastLogParser::new, 2);
+        Assert.assertTrue(Files.exists(LogIndex.indexPath(file)));
+
+        assertQueries(file);
+
+        append(file, " 5\n\tat com.example.Service.call(Service.java:42)\n" + lines(3000, 4000));
+        assertQueries(file);
+        LogIndex.update(file, FastLogParser::new, 1);
+        assertQueries(file);
+        LogIndex.update(file, FastLogParser::new, 1);
+        assertQueries(file);
+    }
+
+    @Test
+    public void resourceQueryFromBucketsTest() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        append(file, lines(0, 4000));
+        LogIndex.update(file, FastLogParser::new, 1);
+        LogFilter[] filters = {new LogFilter("2015-08-19 02", "2015-08-19 04", Arrays.asList("resource2", "resource5"), null),
+                new LogFilter("2015-08-19 03", "2015-08-19 03", null, Collections.singletonList("resource1")),
+                new LogFilter("2015-08-19 03", "2015-08-19 03", Collections.singletonList("missing"), null)};
+        List<LogAggregator> expected = new ArrayList<>();
+        for (LogFilter filter : filters) {
+            expected.add(LogProcessor.process(file, () -> new FastLogParser(filter), 1));
+        }
+
+        // lines of hour 03 are broken after index is built: buckets inside window are not parsed
+        byte[] bytes = Files.readAllBytes(file);
+        String text = new String(bytes, StandardCharsets.US_ASCII);
+        for (int i = text.indexOf("2015-08-19 03:"); i < text.indexOf("2015-08-19 04:"); i++) {
+            if (bytes[i] != '\n') bytes[i] = 'x';
+        }
+        Files.write(file, bytes);
+        for (int i = 0; i < filters.length; i++) {
+            LogFilter filter = filters[i];
+            assertSame(expected.get(i), LogIndex.process(file, () -> new FastLogParser(filter), 1, filter));
+        }
+    }
+
+    @Test
+    public void indexedRecordsCountedTest() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        append(file, lines(0, 3000));
+        LogIndex.update(file, FastLogParser::new, 1);
+
+        // hours 01 and 02 are answered from index, edge hours 00 and 03 are parsed
+        LogFilter[] filters = {new LogFilter("2015-08-19 00:30", "2015-08-19 03:10", null, null),
+                new LogFilter("2015-08-19 00:30", "2015-08-19 03:10", Collections.singletonList("resource2"), null)};
+        for (LogFilter filter : filters) {
+            LogAggregator aggregator = LogIndex.process(file, () -> new FastLogParser(filter), 1, filter);
+            Parser.LineCounters lineCounters = aggregator.getLineCounters();
+            Assert.assertEquals(aggregator.getRecordCount(), lineCounters.getIndexedRecords() + lineCounters.getResourceLines());
+            Assert.assertEquals(filter.hasResourceConditions() ? 171 : 1200, lineCounters.getIndexedRecords());
+            Assert.assertEquals(1200, lineCounters.getTotalLines());
+        }
+    }
+
+    @Test
+    public void notOrderedFileTest() throws IOException {
+        Path file = folder.newFile("app.log").toPath();
+        append(file, lines(0, 1000) + lines(0, 1000));
+        AtomicInteger parsers = new AtomicInteger();
+        Supplier<Parser> parserFactory = () -> {
+            parsers.incrementAndGet();
+            return new FastLogParser();
+        };
+        LogIndex.update(file, parserFactory, 1);
+        Assert.assertTrue(Files.exists(LogIndex.indexPath(file)));
+
+        // not ordered log is marked in index and is not parsed by next updates
+        int firstUpdateParsers = parsers.get();
+        LogIndex.update(file, parserFactory, 1);
+        append(file, lines(1000, 1100));
+        LogIndex.update(file, parserFactory, 1);
+        Assert.assertEquals(firstUpdateParsers, parsers.get());
+
+        LogFilter filter = new LogFilter("2015-08-19 02", "2015-08-19 03", null, null);
+        assertSame(LogProcessor.process(file, () -> new FastLogParser(filter), 1),
+                LogIndex.process(file, () -> new FastLogParser(filter), 1, filter));
+    }
+
+    private static void assertQueries(Path file) throws IOException {
+        LogFilter[] filters = {LogFilter.ALL, new LogFilter("2015-08-19 01", "2015-08-19 03", null, null),
+                new LogFilter("2015-08-19 01:30", "2015-08-19 05:06:42", null, null), new LogFilter(null, "2015-08-19 02:1", null, null),
+                new LogFilter("2015-08-19 03", null, Collections.singletonList("resource2"), null), new LogFilter("2015-08-20", null, null, null)};
+        for (LogFilter filter : filters) {
+            for (int threads : new int[]{1, 3}) {
+                assertSame(LogProcessor.process(file, () -> new FastLogParser(filter), 1),
+                        LogIndex.process(file, () -> new FastLogParser(filter), threads, filter));
+            }
+        }
+    }
+
+    private static void assertSame(LogAggregator expected, LogAggregator actual) {
+        Assert.assertEquals(expected.getRecordCount(), actual.getRecordCount());
+        Assert.assertEquals(expected.getAvgDurationByResource(null), actual.getAvgDurationByResource(null));
+        Assert.assertEquals(expected.getPercentileDurationByResource(99, null), actual.getPercentileDurationByResource(99, null));
+        Assert.assertEquals(expected.getDurationSumByHour(), actual.getDurationSumByHour());
+    }
+
+    private static String lines(int from, int to) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            lines.append(String.format("2015-08-19 %02d:%02d:%02d,375 (http--0.0.0.0-28080-370) [] resource%d 300109921258 in %d\n",
+                    i / 600, i / 10 % 60, i % 10 * 6, i % 7, i));
+        }
+        return lines.toString();
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
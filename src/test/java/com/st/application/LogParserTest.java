@@ -0,0 +1,38 @@
+package com.st.application;
+
+import com.st.application.parsers.LogParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+public class LogParserTest {
+
+    @Test
+    public void candidateCheckSameAsPatternsTest() {
+        // cheap check of regex parser rejects only lines, which match none of raw patterns
+        Pattern resourcePattern = Pattern.compile(LogParser.RESOURCE_LINE_REGEX);
+        Pattern uriPattern = Pattern.compile(LogParser.URI_LINE_REGEX);
+        LogParser parser = new LogParser();
+        String[] samples = {
+                "2015-08-19 00:06:42,375 (http--0.0.0.0-28080-370) [] updateSubscriptionFromBackend 300109921258 in 243",
+                "2015-08-19 05:06:39,679 (http--0.0.0.0-28080-297) [USER:300406591035] /mobilityServices.do?msisdn=300406591035&action=SERVICES in 46",
+                "2015-08-19 05:06:39,679 () [u] /x.do?action=A in 7\r\n",
+                "2015-08-19 05:06:39,679 (a) [b] first in 8\n",
+        };
+        LineMutator mutator = new LineMutator(samples, "0123456789aZ_-:, ()[]/?=&!in\n\r\u2028", 7);
+        for (int i = 0; i < 100_000; i++) {
+            String line = mutator.next();
+            boolean matched = resourcePattern.matcher(line).find() || uriPattern.matcher(line).find();
+            long rejected = parser.getLineCounters().getRejectedLines();
+            try {
+                parser.parseLine(line);
+            } catch (RuntimeException e) {
+                // date-time out of range is found only after pattern is matched
+                Assert.assertTrue(line, matched);
+                continue;
+            }
+            Assert.assertEquals(line, !matched, parser.getLineCounters().getRejectedLines() > rejected);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.st.application;
+
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.LogFiles;
+import com.st.application.infrastructure.LogFilter;
+import com.st.application.infrastructure.LogPipeline;
+import com.st.application.infrastructure.LogProcessor;
+import com.st.application.infrastructure.LogSeeker;
+import com.st.application.infrastructure.RunStatistics;
+import com.st.application.parsers.FastLogParser;
+import com.st.application.parsers.LogParser;
+import com.st.application.parsers.MappedLogParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+public class LogProcessorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void splitByLinesTest() throws IOException {
+        Path file = writeLog(100);
+        byte[] bytes = Files.readAllBytes(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = LogProcessor.split(channel, 7);
+            Assert.assertEquals(8, bounds.length);
+            Assert.assertEquals(0, bounds[0]);
+            Assert.assertEquals(bytes.length, bounds[7]);
+            for (int i = 1; i < 7; i++) {
+                Assert.assertTrue(bounds[i] >= bounds[i - 1]);
+                Assert.assertEquals('\n', bytes[(int) bounds[i] - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void parallelSameAsSingleTest() throws IOException {
+        Path file = writeLog(1000);
+        LogAggregator single = LogProcessor.process(file, FastLogParser::new, 1);
+        Assert.assertEquals(1000, single.getRecordCount());
+
+        for (int threads : new int[]{2, 3, 8}) {
+            LogAggregator parallel = LogProcessor.process(file, FastLogParser::new, threads);
+            Assert.assertEquals(single.getRecordCount(), parallel.getRecordCount());
+            Assert.assertEquals(single.getAvgDurationByResource(null), parallel.getAvgDurationByResource(null));
+            Assert.assertEquals(single.getDurationSumByHour(), parallel.getDurationSumByHour());
+        }
+    }
+
+    @Test
+    public void resourceCapSameForThreadsTest() throws IOException {
+        Path file = writeLog(1000);
+        LogAggregator single = LogProcessor.process(file, () -> new FastLogParser(LogFilter.ALL, 4), 1);
+        Assert.assertTrue(single.hasOtherResources());
+        Map<String, Double> expected = single.getAvgDurationByResource(null);
+        Assert.assertEquals(4, expected.size());
+
+        List<Supplier<Parser>> parserFactories = Arrays.asList(() -> new FastLogParser(LogFilter.ALL, 4),
+                () -> new MappedLogParser(LogFilter.ALL, 4), () -> new LogParser(LogFilter.ALL, 4));
+        for (Supplier<Parser> parserFactory : parserFactories) {
+            for (int threads : new int[]{1, 2, 3, 8}) {
+                LogAggregator parallel = LogProcessor.process(file, parserFactory, threads);
+                Assert.assertEquals(1000, parallel.getRecordCount());
+                Assert.assertEquals(expected, parallel.getAvgDurationByResource(null));
+                Assert.assertEquals(single.getDurationSumByHour(), parallel.getDurationSumByHour());
+            }
+        }
+    }
+
+    @Test
+    public void mappedSameAsRegexTest() throws IOException {
+        Path file = writeLog(1000);
+        LogAggregator expected = LogProcessor.process(file, LogParser::new, 1);
+
+        for (int windowSize : new int[]{16, 100, 4096}) {
+            for (int threads : new int[]{1, 3}) {
+                LogAggregator mapped = LogProcessor.process(file, () -> new MappedLogParser(windowSize), threads);
+                Assert.assertEquals(expected.getRecordCount(), mapped.getRecordCount());
+                Assert.assertEquals(expected.getAvgDurationByResource(null), mapped.getAvgDurationByResource(null));
+                Assert.assertEquals(expected.getDurationSumByHour(), mapped.getDurationSumByHour());
+            }
+        }
+    }
+
+    @Test
+    public void multipleFilesSameAsSingleTest() throws IOException {
+        Path file = writeLog(1000);
+        LogAggregator expected = LogProcessor.process(file, FastLogParser::new, 1);
+
+        List<String> lines = Files.readAllLines(file);
+        Path directory = folder.newFolder("logs").toPath();
+        Files.write(directory.resolve("a.log"), lines.subList(0, 300));
+        Files.write(directory.resolve("b.log"), lines.subList(300, 700));
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(directory.resolve("c.log.gz")))) {
+            Files.write(folder.getRoot().toPath().resolve("c.log"), lines.subList(700, lines.size()));
+            Files.copy(folder.getRoot().toPath().resolve("c.log"), out);
+        }
+
+        List<List<Path>> inputs = Arrays.asList(
+                LogFiles.resolve(Collections.singletonList(directory.toString())),
+                LogFiles.resolve(Collections.singletonList(directory.resolve("*.{log,gz}").toString())),
+                LogFiles.resolve(Arrays.asList(directory.resolve("a.log").toString(), directory.resolve("[bc]*").toString())));
+        for (List<Path> files : inputs) {
+            Assert.assertEquals(3, files.size());
+            for (int threads : new int[]{1, 2, 4}) {
+                LogAggregator aggregator = LogProcessor.process(files, FastLogParser::new, threads, false);
+                Assert.assertEquals(expected.getRecordCount(), aggregator.getRecordCount());
+                Assert.assertEquals(expected.getAvgDurationByResource(null), aggregator.getAvgDurationByResource(null));
+                Assert.assertEquals(expected.getDurationSumByHour(), aggregator.getDurationSumByHour());
+            }
+        }
+    }
+
+    @Test
+    public void pipelineSameAsSingleTest() throws IOException {
+        Path file = writeLog(1000);
+        LogAggregator expected = LogProcessor.process(file, FastLogParser::new, 1);
+        byte[] bytes = Files.readAllBytes(file);
+
+        for (int blockSize : new int[]{10, 1000, 1 << 20}) {
+            for (int parsers : new int[]{1, 3}) {
+                LogPipeline pipeline = new LogPipeline(FastLogParser::new, parsers, blockSize);
+                LogAggregator aggregator = pipeline.process(new ByteArrayInputStream(bytes));
+                Assert.assertEquals(expected.getRecordCount(), aggregator.getRecordCount());
+                Assert.assertEquals(expected.getAvgDurationByResource(null), aggregator.getAvgDurationByResource(null));
+                Assert.assertEquals(expected.getDurationSumByHour(), aggregator.getDurationSumByHour());
+                Assert.assertEquals(bytes.length, pipeline.getStages().get(0).getItems());
+                Assert.assertEquals(expected.getRecordCount(), pipeline.getStages().get(1).getItems());
+                Assert.assertEquals(expected.getRecordCount(), pipeline.getStages().get(2).getItems());
+            }
+        }
+    }
+
+    @Test(expected = MalformedInputException.class)
+    public void pipelineMalformedInputTest() throws IOException {
+        byte[] bytes = Files.readAllBytes(writeLog(1000));
+        bytes[bytes.length / 2] = (byte) 0xFF;
+        new LogPipeline(FastLogParser::new, 2, 1000).process(new ByteArrayInputStream(bytes));
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void notMatchedPatternTest() throws IOException {
+        LogFiles.resolve(Collections.singletonList(folder.getRoot().toPath().resolve("*.none").toString()));
+    }
+
+    @Test
+    public void filterTest() throws IOException {
+        Path file = writeLog(1000);
+        LogFilter filter = new LogFilter("2015-08-19 03", "2015-08-19 05:06", null, Collections.singletonList("resource3"));
+        int expected = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (i % 24 >= 3 && i % 24 <= 5 && i % 13 != 3) expected++;
+        }
+
+        List<Supplier<Parser>> parsers = Arrays.asList(() -> new LogParser(filter), () -> new FastLogParser(filter), () -> new MappedLogParser(filter));
+        for (Supplier<Parser> parserFactory : parsers) {
+            LogAggregator aggregator = LogProcessor.process(file, parserFactory, 2);
+            Assert.assertEquals(expected, aggregator.getRecordCount());
+            Assert.assertEquals(1000 - expected, aggregator.getLineCounters().getFilteredLines());
+            Assert.assertFalse(aggregator.getAvgDurationByResource(null).containsKey("resource3"));
+        }
+
+        LogFilter include = new LogFilter(null, null, Arrays.asList("resource1", "resource2"), null);
+        Assert.assertEquals(154, LogProcessor.process(file, () -> new FastLogParser(include), 1).getRecordCount());
+    }
+
+    @Test
+    public void seekTimeWindowTest() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            log.append(String.format("2015-08-19 %02d:%02d:%02d,375 (http--0.0.0.0-28080-370) [] resource%d 300109921258 in %d\n",
+                    i / 360, i / 6 % 60, i % 6 * 10, i % 7, i));
+            if (i % 10 == 0) {
+                log.append("\tat com.example.Service.call(Service.java:42)\n");
+            }
+        }
+        Path file = folder.newFile().toPath();
+        Files.write(file, log.toString().getBytes(StandardCharsets.UTF_8));
+        String text = log.toString();
+
+        String[][] windows = {{"2015-08-19 03", "2015-08-19 05"}, {"2015-08-19 00:00", null}, {null, "2015-08-19 13:50:20"},
+                {"2015-08-19 07:13:5", "2015-08-19 07:14"}, {"2015-08-20", null}, {null, "2015-08-18"}, {"2015-08-19 09", "2015-08-19 08"}};
+        for (String[] bounds : windows) {
+            LogFilter filter = new LogFilter(bounds[0], bounds[1], null, null);
+            LogAggregator expected = LogProcessor.process(file, () -> new FastLogParser(filter), 1);
+            for (int threads : new int[]{1, 3}) {
+                LogAggregator seeked = LogProcessor.process(file, () -> new FastLogParser(filter), threads, filter);
+                Assert.assertEquals(expected.getRecordCount(), seeked.getRecordCount());
+                Assert.assertEquals(expected.getAvgDurationByResource(null), seeked.getAvgDurationByResource(null));
+                Assert.assertEquals(expected.getDurationSumByHour(), seeked.getDurationSumByHour());
+                Assert.assertEquals(0, seeked.getLineCounters().getFilteredLines());
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] window = LogSeeker.seek(channel, 0, channel.size(), new LogFilter("2015-08-19 03", "2015-08-19 05", null, null));
+            Assert.assertEquals(text.indexOf("2015-08-19 03:00:00"), window[0]);
+            Assert.assertEquals(text.indexOf("2015-08-19 06:00:00"), window[1]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongTimeBoundTest() {
+        new LogFilter("2015-08-19T03", null, null, null);
+    }
+
+    @Test
+    public void runStatisticsTest() throws IOException {
+        Path file = writeLog(1000);
+        RunStatistics statistics = new RunStatistics();
+        statistics.startPhase(RunStatistics.PARSE_PHASE);
+        LogAggregator aggregator = LogProcessor.process(Collections.singletonList(file), FastLogParser::new, 3, false);
+        statistics.startPhase("report");
+        statistics.setLineCounters(aggregator.getLineCounters());
+        aggregator.rankResources(null, null);
+        statistics.endPhase();
+
+        Assert.assertEquals(2, statistics.getPhases().size());
+        RunStatistics.Phase parse = statistics.getPhases().get(0);
+        Assert.assertEquals(RunStatistics.PARSE_PHASE, parse.getName());
+        Assert.assertEquals(Files.size(file), statistics.getInputBytes());
+        Assert.assertEquals(1334, statistics.getLineCounters().getTotalLines());
+        Assert.assertEquals(334, statistics.getLineCounters().getRejectedLines());
+        Assert.assertTrue(parse.getWallNanos() > 0);
+        Assert.assertTrue(statistics.getLinesPerSecond() > 0);
+        // worker threads are measured too, unless JVM does not support counters
+        Assert.assertTrue(parse.getCpuNanos() != 0);
+        Assert.assertTrue(parse.getAllocatedBytes() != 0);
+        Assert.assertTrue(parse.getGcCount() >= 0);
+    }
+
+    @Test
+    public void pipelineStatisticsTest() throws IOException {
+        Path file = writeLog(1000);
+        Path compressed = folder.getRoot().toPath().resolve("statistics.log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            Files.copy(file, out);
+        }
+        RunStatistics statistics = new RunStatistics();
+        statistics.startPhase(RunStatistics.PARSE_PHASE);
+        LogAggregator aggregator = LogProcessor.process(Collections.singletonList(compressed), FastLogParser::new, 3, false);
+        statistics.endPhase();
+
+        List<LogPipeline.Stage> stages = statistics.getPipelineStages();
+        Assert.assertEquals(Arrays.asList("read", "parse", "aggregate"),
+                Arrays.asList(stages.get(0).getName(), stages.get(1).getName(), stages.get(2).getName()));
+        Assert.assertEquals(Files.size(file), stages.get(0).getItems());
+        Assert.assertEquals(aggregator.getRecordCount(), stages.get(1).getItems());
+        Assert.assertEquals(aggregator.getRecordCount(), stages.get(2).getItems());
+
+        // stages are kept only by phases, in which pipeline finished
+        RunStatistics next = new RunStatistics();
+        next.startPhase(RunStatistics.PARSE_PHASE);
+        next.endPhase();
+        Assert.assertTrue(next.getPipelineStages().isEmpty());
+    }
+
+    private Path writeLog(int lineCount) throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            log.append(String.format("2015-08-19 %02d:06:42,375 (http--0.0.0.0-28080-370) [] resource%d 300109921258 in %d", i % 24, i % 13, i));
+            log.append(i % 5 == 0 ? "\r\n" : "\n");
+            if (i % 3 == 0) {
+                log.append("2015-08-19 00:06:42,375 not matched line\n");
+            }
+        }
+        Path file = folder.newFile().toPath();
+        Files.write(file, log.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
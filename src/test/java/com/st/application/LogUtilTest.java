@@ -29,7 +29,6 @@ public class LogUtilTest {
         Assert.assertEquals(1, result.size());
         Assert.assertEquals(Arrays.stream(durationsArray).average().orElse(Double.NaN), result.get(resourceName), 0d);
 
-
         String resourceName1 = "someRes";
         String resourceName2 = "someRes2";
         String resourceName3 = "someRes3";
@@ -0,0 +1,32 @@
+package com.st.application;
+
+import com.st.application.infrastructure.LongLongMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongLongMapTest {
+
+    @Test
+    public void longLongMapTest() {
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long key = i % 10 == 0 ? Long.MIN_VALUE : random.nextInt(5000) - 2500;
+            long value = random.nextInt(1000);
+            map.add(key, value);
+            expected.merge(key, value, Long::sum);
+        }
+
+        Assert.assertEquals(expected.size(), map.size());
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expected.get(0L).longValue(), map.get(0L));
+        Assert.assertEquals(0, map.get(1_000_000L));
+    }
+}
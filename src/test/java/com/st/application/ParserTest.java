@@ -1,18 +1,35 @@
 package com.st.application;
 
+import com.st.application.parsers.FastLogParser;
 import com.st.application.parsers.LogParser;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
+@RunWith(Parameterized.class)
 public class ParserTest {
-    private final Parser parser = new LogParser();
+    private final Parser parser;
     private final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
 
+    public ParserTest(String parserName, Parser parser) {
+        this.parser = parser;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> parsers() {
+        return Arrays.asList(new Object[]{"regex", new LogParser()}, new Object[]{"fast", new FastLogParser()});
+    }
+
     @Test
     public void parseResourceTest() {
         expectSingleItemInList(Collections.singletonList("2015-08-19 00:06:42,375 (http--0.0.0.0-28080-370) [] updateSubscriptionFromBackend 300109921258 in 243"));
@@ -97,6 +114,78 @@ public class ParserTest {
         expectEmptyList("2015-08-19 (http--0.0.0.0-28080-297) [USER:300406591035] /mobilityServices.do?action=SERVICES&msisdn=300406591035&contentId=main_subscription in 46");
     }
 
+    @Test
+    public void streamParseTest() {
+        List<Parser.Data> dataList = new ArrayList<>();
+        parser.parse(Stream.of(
+                "2015-08-19 00:06:42,375 (http--0.0.0.0-28080-370) [] updateSubscriptionFromBackend 300109921258 in 243",
+                "2015-08-19 00:06:42,375 (http--0.0.0.0-28080-370) [] updateSubscriptionFromBackend 300109921258 243",
+                null,
+                "2015-08-19 05:06:39,679 () [USER:300406591035] /mobilityServices.do?action=SERVICES in 46"), dataList::add);
+
+        Assert.assertEquals(2, dataList.size());
+        Assert.assertEquals(Arrays.asList("updateSubscriptionFromBackend", "SERVICES"),
+                Arrays.asList(dataList.get(0).getResourceName(), dataList.get(1).getResourceName()));
+    }
+
+    @Test
+    public void sameAsRegexParserTest() {
+        // regex parser is the reference, comparing it with itself proves nothing
+        Assume.assumeFalse(parser instanceof LogParser);
+        Parser regexParser = new LogParser();
+        String[] samples = {
+                "2015-08-19 00:06:42,375 (http--0.0.0.0-28080-370) [] updateSubscriptionFromBackend 300109921258 in 243",
+                "2015-08-19 05:06:39,679 (http--0.0.0.0-28080-297) [USER:300406591035] /mobilityServices.do?msisdn=300406591035&action=SERVICES in 46",
+                "2015-08-19 05:06:39,679 (a) [b) [c] d] /x.do?action=A&action=B_2&action=&z in 7",
+                "2015-08-19 05:06:39,679 (a) [b] first [c] second x in 8",
+                "2016-02-29 23:59:59,999 () [] fooin in 1",
+        };
+        LineMutator mutator = new LineMutator(samples, "0123456789aZ_-:, ()[]/?=&!\tin", 42);
+        for (int i = 0; i < 20000; i++) {
+            String line = mutator.next();
+            Parser.Data expected = parseQuietly(regexParser, line);
+            Parser.Data actual = parseQuietly(parser, line);
+            if (expected == null) {
+                Assert.assertNull(line, actual);
+            } else {
+                Assert.assertNotNull(line, actual);
+                Assert.assertEquals(line, expected.getRequestTime(), actual.getRequestTime());
+                Assert.assertEquals(line, expected.getResourceName(), actual.getResourceName());
+                Assert.assertEquals(line, expected.getRequestDuration(), actual.getRequestDuration());
+            }
+        }
+    }
+
+    @Test
+    public void lineCountersTest() {
+        // parser instance is shared by tests, so only lines of this test are counted
+        Parser.LineCounters before = new Parser.LineCounters();
+        before.add(parser.getLineCounters());
+        parser.parse(Arrays.asList(
+                "2015-08-19 00:06:42,375 (http--0.0.0.0-28080-370) [] updateSubscriptionFromBackend 300109921258 in 243",
+                "2015-08-19 05:06:39,679 (http--0.0.0.0-28080-297) [USER:300406591035] /mobilityServices.do?action=SERVICES in 46",
+                "2015-08-19 05:06:39,679 (http--0.0.0.0-28080-297) [USER:300406591035] /x.do?action=A [] b c in 46",
+                "2015-08-19 05:06:39,679 (http--0.0.0.0-28080-297) [USER:300406591035] /mobilityServices.do?action= in 46",
+                "2015-08-19 05:06:39,679 (http--0.0.0.0-28080-297) Started in 46 ms",
+                "2015-08-19 05:06:39 (http--0.0.0.0-28080-297) [] resource in 46",
+                "",
+                null));
+
+        Parser.LineCounters counters = parser.getLineCounters();
+        Assert.assertEquals(8, counters.getTotalLines() - before.getTotalLines());
+        Assert.assertEquals(2, counters.getResourceLines() - before.getResourceLines());
+        Assert.assertEquals(1, counters.getUriLines() - before.getUriLines());
+        Assert.assertEquals(5, counters.getRejectedLines() - before.getRejectedLines());
+    }
+
+    private static Parser.Data parseQuietly(Parser parser, String line) {
+        try {
+            return parser.parseLine(line);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
     private void expectEmptyList(String resourceString) {
         List<String> dirtyList;
         List<Parser.Data> dataList;
@@ -0,0 +1,114 @@
+package com.st.application;
+
+import com.st.application.infrastructure.LogAggregator;
+import com.st.application.infrastructure.ResourceRanking;
+import com.st.application.reports.CsvReportSink;
+import com.st.application.reports.JsonReportSink;
+import com.st.application.reports.TextReportSink;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Function;
+
+public class ReportSinkTest {
+
+    @Test
+    public void textReportTest() throws IOException {
+        Assert.assertEquals("Resources with highest average request duration: \n"
+                        + "    1) slow,\"one\" = 300.0\n"
+                        + "    2) fast = 15.0\n"
+                        + "\n"
+                        + "Request duration percentiles of these resources (p50 / p90 / p99 / max):\n"
+                        + "    1) slow,\"one\" = 300 / 300 / 300 / 300\n"
+                        + "    2) fast = 10 / 20 / 20 / 20\n"
+                        + "\n"
+                        + "Draw histogram of hourly number of requests:\n"
+                        + "    0-100(step 1%) => " + stars(100) + "\n"
+                        + "    2015-08-19: 01 => " + stars(100) + "\n"
+                        + "    2015-08-19: 03 => " + stars(6) + "\n",
+                write(new StringWriter(), TextReportSink::new));
+    }
+
+    @Test
+    public void jsonReportTest() throws IOException {
+        Assert.assertEquals("{\"requests\":3,\"rankBy\":\"average\",\"resources\":["
+                        + "{\"rank\":1,\"name\":\"slow,\\\"one\\\"\",\"value\":300.0,\"count\":1,\"p50\":300,\"p90\":300,\"p99\":300,\"max\":300},"
+                        + "{\"rank\":2,\"name\":\"fast\",\"value\":15.0,\"count\":2,\"p50\":10,\"p90\":20,\"p99\":20,\"max\":20}],"
+                        + "\"hours\":[{\"hour\":\"2015-08-19T01:00\",\"durationSum\":310},{\"hour\":\"2015-08-19T03:00\",\"durationSum\":20}]}\n",
+                write(new StringWriter(), JsonReportSink::new));
+    }
+
+    @Test
+    public void csvReportTest() throws IOException {
+        Assert.assertEquals("section,rank,name,statistic,value,count,p50,p90,p99,max\n"
+                        + "resource,1,\"slow,\"\"one\"\"\",average,300.0,1,300,300,300,300\n"
+                        + "resource,2,fast,average,15.0,2,10,20,20,20\n"
+                        + "hour,,2015-08-19T01:00,durationSum,310,,,,,\n"
+                        + "hour,,2015-08-19T03:00,durationSum,20,,,,,\n",
+                write(new StringWriter(), CsvReportSink::new));
+    }
+
+    private static String write(StringWriter out, Function<StringWriter, ReportSink> factory) throws IOException {
+        LogAggregator aggregator = new LogAggregator();
+        aggregator.accept(millis(LocalDateTime.of(2015, 8, 19, 0, 6)), "slow,\"one\"", 300);
+        aggregator.accept(millis(LocalDateTime.of(2015, 8, 19, 0, 59)), "fast", 10);
+        aggregator.accept(millis(LocalDateTime.of(2015, 8, 19, 2, 0)), "fast", 20);
+
+        ReportSink sink = factory.apply(out);
+        sink.begin(aggregator.getRecordCount());
+        sink.writeResources(aggregator.rankResources(null, null));
+        sink.writeHours(aggregator.getHourlyDurations());
+        sink.end();
+        return out.toString();
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000;
+    }
+
+    private static String stars(int count) {
+        StringBuilder stars = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            stars.append('*');
+        }
+        return stars.toString();
+    }
+
+    @Test
+    public void otherReportTest() throws IOException {
+        LogAggregator aggregator = new LogAggregator(1);
+        aggregator.accept(millis(LocalDateTime.of(2015, 8, 19, 0, 6)), "fast", 10);
+        aggregator.accept(millis(LocalDateTime.of(2015, 8, 19, 0, 7)), "slow", 300);
+        ResourceRanking ranking = aggregator.rankResources(null, null);
+        Assert.assertEquals(1, ranking.size());
+        String kept = ranking.getName(0);
+        long keptValue = (long) ranking.getValue(0);
+        long otherValue = keptValue == 10 ? 300 : 10;
+
+        StringWriter text = new StringWriter();
+        new TextReportSink(text).writeResources(ranking);
+        Assert.assertTrue(text.toString(), text.toString().endsWith("\n\nNot ranked requests of resources beyond limit of 1"
+                + " (kept resources are chosen by hash of name, not by duration):\n"
+                + "    (other) = average " + (double) otherValue + ", 1 requests, p50 / p90 / p99 / max = "
+                + otherValue + " / " + otherValue + " / " + otherValue + " / " + otherValue + "\n"));
+
+        StringWriter json = new StringWriter();
+        new JsonReportSink(json).writeResources(ranking);
+        Assert.assertEquals(",\"rankBy\":\"average\",\"resources\":[{\"rank\":1,\"name\":\"" + kept + "\",\"value\":" + (double) keptValue
+                + ",\"count\":1,\"p50\":" + keptValue + ",\"p90\":" + keptValue + ",\"p99\":" + keptValue + ",\"max\":" + keptValue + "}],"
+                + "\"other\":{\"name\":\"(other)\",\"maxResources\":1,\"keptBy\":\"nameHash\",\"value\":" + (double) otherValue
+                + ",\"count\":1,\"p50\":" + otherValue + ",\"p90\":" + otherValue + ",\"p99\":" + otherValue + ",\"max\":" + otherValue + "}",
+                json.toString());
+
+        StringWriter csv = new StringWriter();
+        new CsvReportSink(csv).writeResources(ranking);
+        Assert.assertEquals("resource,1," + kept + ",average," + (double) keptValue + ",1," + keptValue + "," + keptValue + "," + keptValue + "," + keptValue + "\n"
+                        + "other,,(other),average," + (double) otherValue + ",1," + otherValue + "," + otherValue + "," + otherValue + "," + otherValue + "\n"
+                        + "other,,(other),maxResourcesByNameHash,1,,,,,\n",
+                csv.toString());
+    }
+}
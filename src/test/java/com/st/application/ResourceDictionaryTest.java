@@ -0,0 +1,23 @@
+package com.st.application;
+
+import com.st.application.infrastructure.ResourceDictionary;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResourceDictionaryTest {
+
+    @Test
+    public void resourceDictionaryCapTest() {
+        ResourceDictionary resources = new ResourceDictionary(3);
+        String line = "x alpha beta gamma delta epsilon";
+        Assert.assertEquals(0, resources.getId(line, 2, 7));
+        Assert.assertEquals(1, resources.getId("beta"));
+        Assert.assertEquals(2, resources.getId(line, 13, 18));
+        Assert.assertEquals(-1, resources.getId("delta"));
+        Assert.assertEquals(-1, resources.find("delta"));
+        Assert.assertEquals("epsilon", resources.intern(line, 25, 32));
+        Assert.assertEquals(1, resources.getId(line, 8, 12));
+        Assert.assertSame(resources.getName(0), resources.intern("alpha", 0, 5));
+        Assert.assertEquals(3, resources.size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.st.application;
+
+import com.st.application.infrastructure.LogUtil;
+import com.st.application.parsers.TimestampDecoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+public class TimestampDecoderTest {
+
+    @Test
+    public void timestampDecoderTest() {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+        TimestampDecoder decoder = new TimestampDecoder();
+        LocalDateTime time = LocalDateTime.of(2015, 12, 31, 22, 59, 58, 999_000_000);
+        for (int i = 0; i < 10_000; i++) {
+            time = time.plus(i % 7 * 137, ChronoUnit.MILLIS).plusSeconds(i % 3 == 0 ? 0 : 11);
+            String line = time.format(format) + " (thread) [] resource in 1";
+            Assert.assertTrue(line, decoder.decode(line));
+            Assert.assertEquals(time, decoder.getDateTime(line));
+            long millis = decoder.getMillis(line);
+            Assert.assertEquals(time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000, millis);
+            Assert.assertEquals(time.plusHours(1).truncatedTo(ChronoUnit.HOURS), LogUtil.toDateTime(LogUtil.toHour(millis)));
+        }
+
+        // unusual values are resolved or rejected by formatter, the same as LocalDateTime.parse
+        for (String dateTime : new String[]{"2015-02-29 10:00:00,000", "2016-02-30 10:00:00,000", "2016-02-29 10:00:00,000",
+                "2016-02-29 10:00:00,000", "2016-13-01 10:00:00,000", "2016-02-29 24:00:00,000", "2016-02-29 23:60:00,000"}) {
+            Assert.assertTrue(decoder.decode(dateTime));
+            Object expected;
+            Object actual;
+            try {
+                expected = LocalDateTime.parse(dateTime, format);
+            } catch (DateTimeParseException e) {
+                expected = DateTimeParseException.class;
+            }
+            try {
+                actual = decoder.getDateTime(dateTime);
+            } catch (DateTimeParseException e) {
+                actual = DateTimeParseException.class;
+            }
+            Assert.assertEquals(dateTime, expected, actual);
+        }
+        Assert.assertFalse(decoder.decode("2016-02-29 1a:00:00,000"));
+        Assert.assertFalse(decoder.decode("2016-02-29 10:00:0x,000"));
+        Assert.assertFalse(decoder.decode("2016-02-29 10-00:00,000"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.st.application;
+
+import com.st.application.infrastructure.ResourceDictionary;
+import com.st.application.infrastructure.TopN;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+public class TopNTest {
+
+    @Test
+    public void topNTest() {
+        ResourceDictionary resources = new ResourceDictionary();
+        Random random = new Random(3);
+        double[] scores = new double[1000];
+        for (int id = 0; id < scores.length; id++) {
+            resources.getId("res" + random.nextInt(1_000_000) + "_" + id);
+            scores[id] = random.nextInt(50);
+        }
+
+        Integer[] expected = new Integer[scores.length];
+        for (int id = 0; id < expected.length; id++) {
+            expected[id] = id;
+        }
+        Arrays.sort(expected, Comparator.<Integer>comparingDouble(id -> -scores[id]).thenComparing(resources::getName));
+
+        for (Integer limit : new Integer[]{null, 0, 1, 10, 999, 1000, 5000}) {
+            int[] top = TopN.select(scores, resources, limit);
+            int size = limit == null ? scores.length : Math.min(limit, scores.length);
+            Assert.assertEquals(size, top.length);
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(expected[i].intValue(), top[i]);
+            }
+        }
+
+        // excluded id is skipped, the next ids move up
+        int excluded = expected[3];
+        for (Integer limit : new Integer[]{null, 2, 10, 999}) {
+            int[] top = TopN.select(scores, resources, excluded, limit);
+            int size = limit == null ? scores.length - 1 : limit;
+            Assert.assertEquals(size, top.length);
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(expected[i < 3 ? i : i + 1].intValue(), top[i]);
+            }
+        }
+    }
+}